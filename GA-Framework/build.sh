@@ -0,0 +1,27 @@
+#!/bin/sh
+# Compiles the framework into bin/ (or $OUT).
+#
+# The sources under src/ need only the Gson jar, given by $GSON_JAR. The
+# vectorized QBF kernels under src-vector/ use the incubator module
+# jdk.incubator.vector (JDK 16 or later), so they are compiled apart, with
+# --add-modules jdk.incubator.vector, and skipped when the JDK lacks it; the
+# scalar kernels are used then.
+#
+# Run from this directory with the same module added, e.g.
+#   java --add-modules jdk.incubator.vector -cp bin:$GSON_JAR Main
+# Without --add-modules the program still runs, on the scalar kernels.
+
+set -e
+cd "$(dirname "$0")"
+
+GSON_JAR=${GSON_JAR:-lib/gson.jar}
+OUT=${OUT:-bin}
+mkdir -p "$OUT"
+
+javac -encoding UTF-8 -cp "$GSON_JAR" -d "$OUT" $(find src -name '*.java')
+
+if java --add-modules jdk.incubator.vector -version > /dev/null 2>&1; then
+	javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp "$OUT" -d "$OUT" $(find src-vector -name '*.java')
+else
+	echo "jdk.incubator.vector is not available: only the scalar QBF kernels were built" >&2
+fi
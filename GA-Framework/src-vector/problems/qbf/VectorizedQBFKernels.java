@@ -0,0 +1,111 @@
+package problems.qbf;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link QBFKernels} written with the JDK Vector API, processing as many
+ * doubles per instruction as the preferred vector shape of the CPU holds. It
+ * is loaded reflectively by {@link QBFKernels#get()}, and requires
+ * {@code --add-modules jdk.incubator.vector} both to compile and to run, which
+ * is why it lives in its own source root, {@code src-vector}, compiled after
+ * {@code src} by {@code build.sh}.
+ */
+class VectorizedQBFKernels extends QBFKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	public VectorizedQBFKernels() {
+	}
+
+	@Override
+	public String name() {
+		return "vector (" + SPECIES.length() + " lanes)";
+	}
+
+	@Override
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		DoubleVector acc = DoubleVector.zero(SPECIES);
+		int k = 0;
+		for (int upper = SPECIES.loopBound(length); k < upper; k += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + k);
+			DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + k);
+			acc = acc.add(va.mul(vb));
+		}
+
+		double sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; k < length; k++) {
+			sum += a[aOffset + k] * b[bOffset + k];
+		}
+
+		return sum;
+	}
+
+	@Override
+	public void axpy(double factor, double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		int k = 0;
+		for (int upper = SPECIES.loopBound(length); k < upper; k += SPECIES.length()) {
+			DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + k);
+			DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + k);
+			vb.add(va.mul(factor)).intoArray(b, bOffset + k);
+		}
+
+		for (; k < length; k++) {
+			b[bOffset + k] += factor * a[aOffset + k];
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Rows are processed four at a time, so that each vector of
+	 * the shared slice is loaded once for four products.
+	 */
+	@Override
+	public void dotBatch(double[] a, int aOffset, double[] xs, int[] rows, int count, int stride, int xOffset, int length, double[] results) {
+
+		int c = 0;
+		for (; c + 4 <= count; c += 4) {
+			int o0 = rows[c] * stride + xOffset;
+			int o1 = rows[c + 1] * stride + xOffset;
+			int o2 = rows[c + 2] * stride + xOffset;
+			int o3 = rows[c + 3] * stride + xOffset;
+
+			DoubleVector acc0 = DoubleVector.zero(SPECIES);
+			DoubleVector acc1 = DoubleVector.zero(SPECIES);
+			DoubleVector acc2 = DoubleVector.zero(SPECIES);
+			DoubleVector acc3 = DoubleVector.zero(SPECIES);
+			int k = 0;
+			for (int upper = SPECIES.loopBound(length); k < upper; k += SPECIES.length()) {
+				DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + k);
+				acc0 = acc0.add(va.mul(DoubleVector.fromArray(SPECIES, xs, o0 + k)));
+				acc1 = acc1.add(va.mul(DoubleVector.fromArray(SPECIES, xs, o1 + k)));
+				acc2 = acc2.add(va.mul(DoubleVector.fromArray(SPECIES, xs, o2 + k)));
+				acc3 = acc3.add(va.mul(DoubleVector.fromArray(SPECIES, xs, o3 + k)));
+			}
+
+			double s0 = acc0.reduceLanes(VectorOperators.ADD);
+			double s1 = acc1.reduceLanes(VectorOperators.ADD);
+			double s2 = acc2.reduceLanes(VectorOperators.ADD);
+			double s3 = acc3.reduceLanes(VectorOperators.ADD);
+			for (; k < length; k++) {
+				double ak = a[aOffset + k];
+				s0 += ak * xs[o0 + k];
+				s1 += ak * xs[o1 + k];
+				s2 += ak * xs[o2 + k];
+				s3 += ak * xs[o3 + k];
+			}
+
+			results[rows[c]] += s0;
+			results[rows[c + 1]] += s1;
+			results[rows[c + 2]] += s2;
+			results[rows[c + 3]] += s3;
+		}
+
+		for (; c < count; c++) {
+			results[rows[c]] += dot(a, aOffset, xs, rows[c] * stride + xOffset, length);
+		}
+	}
+
+}
@@ -19,6 +19,9 @@ import java.util.logging.Level;
 
 public class Main {
     private static final Logger logger = Logger.getLogger(Main.class.getName());
+
+    // Each instance gets its own random stream derived from this seed, so the batch is reproducible
+    private static final long MASTER_SEED = 0L;
     
     public static void main(String[] args) {
         // Setup logger to write to file
@@ -41,12 +44,15 @@ public class Main {
             List<Future<Void>> futures = new ArrayList<>();
             
             // Submit all parameter configurations for this instance to run in parallel
-            for (String instance : instances) {
+            for (int i = 0; i < instances.length; i++) {
+                String instance = instances[i];
+                long streamId = i;
                 Future<Void> future = executor.submit(() -> {
                     try {
                         // Create a thread-safe log message prefix
                         String logPrefix = "[" + param.getAlias() + "] Instance " + instance + " - ";
                         GA_QBF_SC solver = param.createSolver(instance, logger, logPrefix);
+                        solver.setSeed(MASTER_SEED, streamId);
                         long startTime = System.currentTimeMillis();
                         
                         synchronized (logger) {
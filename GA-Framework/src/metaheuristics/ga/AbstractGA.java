@@ -1,7 +1,13 @@
 package metaheuristics.ga;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import problems.Evaluator;
@@ -19,8 +25,167 @@ import solutions.Solution;
  */
 public abstract class AbstractGA<G extends Number, F> {
 
-	@SuppressWarnings("serial")
-	public class Chromosome extends ArrayList<G> {
+	/**
+	 * A chromosome is the list of genes of an individual. By default the genes
+	 * are stored boxed in an {@link ArrayList}; subclasses may replace the
+	 * storage by overriding {@link #get}, {@link #set}, {@link #add(int, Number)},
+	 * {@link #remove(int)} and {@link #size}, and speed up the genetic
+	 * operators by overriding {@link #recombine}.
+	 */
+	public class Chromosome extends AbstractList<G> implements RandomAccess {
+
+		/**
+		 * the boxed genes, or null if a subclass provides its own storage
+		 */
+		private final ArrayList<G> genes;
+
+		/**
+		 * the fitness of this chromosome, cached by {@link #getFitness}
+		 */
+		protected double fitness;
+
+		/**
+		 * whether {@link #fitness} holds the fitness of the current genes
+		 */
+		protected boolean evaluated;
+
+		/**
+		 * the generation in which {@link #fitness} was computed
+		 */
+		protected int fitnessGeneration;
+
+		/**
+		 * the decoded solution of this chromosome, cached by
+		 * {@link #getSolution}, or null if it was never decoded
+		 */
+		protected Solution<F> solution;
+
+		/**
+		 * whether {@link #solution} is decoded from the current genes; when it
+		 * is not, the solution object may still be reused by the next decoding
+		 */
+		protected boolean decoded;
+
+		public Chromosome() {
+			this(new ArrayList<G>(chromosomeSize));
+		}
+
+		/**
+		 * Constructor for subclasses that store the genes themselves, in which
+		 * case a null list of genes should be given.
+		 * 
+		 * @param genes
+		 *            The list backing this chromosome.
+		 */
+		protected Chromosome(ArrayList<G> genes) {
+			this.genes = genes;
+		}
+
+		/**
+		 * Drops the cached fitness and decoded solution. It must be called
+		 * whenever the genes are changed by means other than {@link #set},
+		 * {@link #add} and {@link #remove}, which already call it.
+		 */
+		public void invalidate() {
+			evaluated = false;
+			decoded = false;
+		}
+
+		/**
+		 * @return Whether the solution decoded from the current genes is
+		 *         cached.
+		 */
+		public boolean isDecoded() {
+			return decoded;
+		}
+
+		@Override
+		public G get(int index) {
+			return genes.get(index);
+		}
+
+		@Override
+		public G set(int index, G element) {
+			invalidate();
+			return genes.set(index, element);
+		}
+
+		@Override
+		public void add(int index, G element) {
+			invalidate();
+			genes.add(index, element);
+		}
+
+		@Override
+		public G remove(int index) {
+			invalidate();
+			return genes.remove(index);
+		}
+
+		@Override
+		public int size() {
+			return genes.size();
+		}
+
+		/**
+		 * Replaces the genes of this chromosome by the 2-point recombination of
+		 * two parents: the loci in [from, to) are taken from {@code inner} and
+		 * the remaining ones from {@code outer}.
+		 * 
+		 * @param outer
+		 *            The parent providing the genes outside the segment.
+		 * @param inner
+		 *            The parent providing the genes inside the segment.
+		 * @param from
+		 *            The first locus of the segment.
+		 * @param to
+		 *            The locus right after the end of the segment.
+		 */
+		public void recombine(Chromosome outer, Chromosome inner, int from, int to) {
+
+			clear();
+			for (int j = 0; j < outer.size(); j++) {
+				if (j >= from && j < to) {
+					add(inner.get(j));
+				} else {
+					add(outer.get(j));
+				}
+			}
+
+		}
+
+		/**
+		 * Makes this chromosome a copy of another one, along with its cached
+		 * fitness and decoded solution. The solution is copied into the one
+		 * already owned by this chromosome, if any, so no objects are shared
+		 * between the two chromosomes.
+		 * 
+		 * @param other
+		 *            The chromosome being copied.
+		 */
+		public void copyFrom(Chromosome other) {
+
+			recombine(other, other, 0, 0);
+
+			fitness = other.fitness;
+			fitnessGeneration = other.fitnessGeneration;
+			evaluated = other.evaluated;
+
+			if (other.decoded) {
+				if (solution == null) {
+					solution = new Solution<F>(other.solution);
+				} else {
+					solution.clear();
+					for (int i = 0; i < other.solution.size(); i++) {
+						solution.add(other.solution.get(i));
+					}
+					solution.cost = other.solution.cost;
+				}
+				decoded = true;
+			}
+
+		}
+
 	}
 
 	@SuppressWarnings("serial")
@@ -34,15 +199,33 @@ public abstract class AbstractGA<G extends Number, F> {
 	public static boolean verbose = true;
 
 	/**
-	 * a random number generator
+	 * the random number generator of this GA, which is confined to the thread
+	 * running it (see {@link #setSeed})
 	 */
-	public static final Random rng = new Random(0);
+	protected final RandomStream rng = new RandomStream(0);
 
 	/**
 	 * the objective function being optimized
 	 */
 	protected Evaluator<F> ObjFunction;
 
+	/**
+	 * the number of threads evaluating the fitness of new chromosomes
+	 */
+	protected int evaluationThreads = 1;
+
+	/**
+	 * the pool evaluating new chromosomes, when {@link #evaluationThreads} is
+	 * greater than one
+	 */
+	private ForkJoinPool evaluationPool;
+
+	/**
+	 * the objective function of each evaluation thread, forked from
+	 * {@link #ObjFunction} so that no workspace is shared between threads
+	 */
+	private ThreadLocal<Evaluator<F>> threadObjFunction;
+
 	/**
 	 * maximum number of generations being executed
 	 */
@@ -50,6 +233,11 @@ public abstract class AbstractGA<G extends Number, F> {
 
     protected int currentGeneration;
 
+	/**
+	 * the current population
+	 */
+	protected Population population;
+
 	/**
 	 * the size of the population
 	 */
@@ -82,6 +270,45 @@ public abstract class AbstractGA<G extends Number, F> {
 
     protected Long timeoutInSeconds;
 
+	/**
+	 * the time at which the current run started
+	 */
+	protected long startTime;
+
+	/**
+	 * whether each generation breeds offsprings one pair at a time, replacing
+	 * worse chromosomes in place (see {@link #nextSteadyStateGeneration})
+	 * instead of breeding a whole new population
+	 */
+	protected boolean steadyState = false;
+
+	/**
+	 * the best and worst chromosomes of the population, in steady-state mode
+	 */
+	private FitnessIndex fitnessIndex;
+
+	/**
+	 * the chromosomes receiving the next offsprings, in steady-state mode
+	 */
+	private Chromosome spareOffspring1, spareOffspring2;
+
+	/**
+	 * whether the generational GA writes its offsprings into recycled
+	 * chromosomes (see {@link #setRecyclePopulations})
+	 */
+	protected boolean recyclePopulations = false;
+
+	/**
+	 * the two populations whose chromosomes are recycled: one of them holds
+	 * the current population while the other one receives its offsprings
+	 */
+	private Population populationBuffer1, populationBuffer2;
+
+	/**
+	 * the list of parents reused by every generation, when recycling
+	 */
+	private Population parentsBuffer;
+
     protected Logger logger;
 
     protected String logPrefix = "";
@@ -105,6 +332,31 @@ public abstract class AbstractGA<G extends Number, F> {
 	 */
 	protected abstract Solution<F> decode(Chromosome chromosome);
 
+	/**
+	 * Decodes a chromosome into an existing solution, replacing its contents,
+	 * so that recycled chromosomes also recycle their decoded solutions. By
+	 * default it ignores the given solution and calls {@link #decode}.
+	 * 
+	 * @param chromosome
+	 *            The genotype being considered for decoding.
+	 * @param solution
+	 *            A solution that is no longer in use, to be overwritten.
+	 * @return The corresponding fenotype (solution).
+	 */
+	protected Solution<F> decode(Chromosome chromosome, Solution<F> solution) {
+		return decode(chromosome);
+	}
+
+	/**
+	 * Creates a new chromosome with no genes, using the representation chosen
+	 * by the GA. All chromosomes handled by the engine are created here.
+	 * 
+	 * @return An empty chromosome.
+	 */
+	protected Chromosome createChromosome() {
+		return new Chromosome();
+	}
+
 	/**
 	 * Generates a random chromosome according to some probability distribution
 	 * (usually uniform).
@@ -116,7 +368,8 @@ public abstract class AbstractGA<G extends Number, F> {
 	/**
 	 * Determines the fitness for a given chromosome. The fitness should be a
 	 * function strongly correlated to the objective function under
-	 * consideration.
+	 * consideration. The engine caches this value with the chromosome, so
+	 * callers should go through {@link #getFitness} instead.
 	 * 
 	 * @param chromosome
 	 *            The genotype being considered for fitness evaluation.
@@ -124,6 +377,18 @@ public abstract class AbstractGA<G extends Number, F> {
 	 */
 	protected abstract Double fitness(Chromosome chromosome);
 
+	/**
+	 * Tells whether the fitness of an unchanged chromosome may vary along the
+	 * run, e.g. when it depends on {@link #currentGeneration}. In that case
+	 * cached fitness values are only reused within the generation in which
+	 * they were computed.
+	 * 
+	 * @return true if the fitness depends on the current generation.
+	 */
+	protected boolean isFitnessGenerationDependent() {
+		return false;
+	}
+
 	/**
 	 * Mutates a given locus of the chromosome. This method should be preferably
 	 * called with an expected frequency determined by the {@link #mutationRate}.
@@ -168,53 +433,425 @@ public abstract class AbstractGA<G extends Number, F> {
 	 */
 	public Solution<F> solve() {
 
+		startRun();
+
+		/*
+		 * enters the main loop and repeats until a given number of generations
+		 */
+		while (!isRunOver()) {
+			nextGeneration();
+		}
+
+		return finishRun();
+	}
+
+	/**
+	 * Starts a run of the GA: creates and evaluates the initial population
+	 * and takes its best chromosome as the first best solution.
+	 */
+	protected void startRun() {
+
+		currentGeneration = 0;
+		fitnessIndex = null;
+		if (recyclePopulations && populationBuffer1 == null) {
+			allocatePopulationBuffers();
+		}
+
 		/* starts the initial population */
-		Population population = initializePopulation();
+		population = initializePopulation();
+		evaluatePopulation(population);
 
 		bestChromosome = getBestChromosome(population);
-		bestSol = decode(bestChromosome);
+		bestSol = recyclePopulations ? new Solution<F>(getSolution(bestChromosome)) : getSolution(bestChromosome);
 		logger.info(logPrefix + "(Gen. " + 0 + ") BestSol = " + bestSol);
 
-        long startTime = System.currentTimeMillis();
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Executes one generation of the GA over the current {@link #population}.
+	 */
+	protected void nextGeneration() {
 
-		/*
-		 * enters the main loop and repeats until a given number of generations
-		 */
-		for (currentGeneration = 1; currentGeneration <= generations; currentGeneration++) {
+		currentGeneration++;
 
-			Population parents = selectParents(population);
+		if (steadyState) {
+			nextSteadyStateGeneration();
+			return;
+		}
 
-			Population offsprings = crossover(parents);
+		Population parents = selectParents(population);
 
-			Population mutants = mutate(offsprings);
+		Population offsprings = crossover(parents);
 
-			Population newpopulation = selectPopulation(mutants);
+		Population mutants = mutate(offsprings);
+		evaluatePopulation(mutants);
 
-			population = newpopulation;
+		population = selectPopulation(mutants);
 
-			bestChromosome = getBestChromosome(population);
-            Solution<F> bestSolCurrentGen = decode(bestChromosome);
+		bestChromosome = getBestChromosome(population);
+		updateBestSolution(getSolution(bestChromosome));
+	}
 
-			if (bestSolCurrentGen.cost < bestSol.cost && ObjFunction.isFeasible(bestSolCurrentGen)) {
-				bestSol = bestSolCurrentGen;
-				if (verbose)
-					logger.info(logPrefix + "(Gen. " + currentGeneration + ") BestSol = " + bestSol);
-			}
-            
-            long currentTime = System.currentTimeMillis();
-            if (timeoutInSeconds != null && (currentTime - startTime) >= timeoutInSeconds * 1000) {
-                logger.warning(logPrefix + "Timeout reached after " + timeoutInSeconds + " seconds.");
-                break;
-            }
+	/**
+	 * Executes one generation of the steady-state GA: {@link #popSize}
+	 * offsprings are bred two at a time, by tournament selection, crossover
+	 * and mutation, and each one replaces the worst chromosome of the
+	 * population in place if it is better than it. The best and worst
+	 * chromosomes are tracked by a {@link FitnessIndex}, so the population is
+	 * neither scanned nor reallocated, and the replaced chromosomes are reused
+	 * to hold the next offsprings.
+	 */
+	protected void nextSteadyStateGeneration() {
+
+		if (fitnessIndex == null || isFitnessGenerationDependent()) {
+			indexPopulation();
+		}
+
+		for (int i = 0; i < popSize; i = i + 2) {
+
+			Chromosome parent1 = population.get(selectParentIndex());
+			Chromosome parent2 = population.get(selectParentIndex());
+
+			crossover(parent1, parent2, spareOffspring1, spareOffspring2);
+
+			mutate(spareOffspring1);
+			mutate(spareOffspring2);
+
+			spareOffspring1 = replaceWorse(spareOffspring1);
+			spareOffspring2 = replaceWorse(spareOffspring2);
+
+		}
+
+		bestChromosome = population.get(fitnessIndex.best());
+		updateBestSolution(getSolution(bestChromosome));
+	}
+
+	/**
+	 * (Re)builds the {@link #fitnessIndex} of the current population.
+	 */
+	private void indexPopulation() {
+
+		if (fitnessIndex == null) {
+			fitnessIndex = new FitnessIndex(popSize);
+			spareOffspring1 = createChromosome();
+			spareOffspring2 = createChromosome();
+		}
+
+		evaluatePopulation(population);
+		for (int i = 0; i < popSize; i++) {
+			fitnessIndex.set(i, getFitness(population.get(i)));
+		}
+		fitnessIndex.build();
+	}
+
+	/**
+	 * Selects a parent in the steady-state GA by the same tournament used by
+	 * {@link #selectParents}.
+	 * 
+	 * @return The position of the selected parent in the population.
+	 */
+	private int selectParentIndex() {
+
+		int index1 = rng.nextInt(popSize);
+		int index2 = rng.nextInt(popSize);
+
+		return fitnessIndex.fitness(index1) > fitnessIndex.fitness(index2) ? index1 : index2;
+	}
+
+	/**
+	 * Puts an offspring in the place of the worst chromosome of the population
+	 * if it is better than it.
+	 * 
+	 * @param offspring
+	 *            The offspring competing for a place in the population.
+	 * @return The chromosome left out of the population, to be reused.
+	 */
+	private Chromosome replaceWorse(Chromosome offspring) {
+
+		int worse = fitnessIndex.worst();
+		double fitness = getFitness(offspring);
+		if (fitness > fitnessIndex.fitness(worse)) {
+			Chromosome replaced = population.set(worse, offspring);
+			fitnessIndex.update(worse, fitness);
+			return replaced;
+		}
+
+		return offspring;
+	}
+
+	/**
+	 * Replaces the best solution by the best solution of the current
+	 * generation, if the latter is feasible and better. When chromosomes are
+	 * recycled, the best solution is a copy, since the given one will be
+	 * overwritten. Subclasses may override it to react to the progress of the
+	 * search.
+	 * 
+	 * @param bestSolCurrentGen
+	 *            The best solution of the current generation.
+	 * @return true if the best solution was replaced.
+	 */
+	protected boolean updateBestSolution(Solution<F> bestSolCurrentGen) {
+
+		if (bestSolCurrentGen.cost < bestSol.cost && isFeasible(bestSolCurrentGen)) {
+			bestSol = recyclePopulations ? new Solution<F>(bestSolCurrentGen) : bestSolCurrentGen;
+			if (verbose)
+				logger.info(logPrefix + "(Gen. " + currentGeneration + ") BestSol = " + bestSol);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Tells whether the best solution of the current generation, decoded from
+	 * {@link #bestChromosome}, is feasible. By default it asks the objective
+	 * function; subclasses that cache the feasibility along with the fitness
+	 * may answer from the chromosome instead.
+	 * 
+	 * @param bestSolCurrentGen
+	 *            The best solution of the current generation.
+	 * @return true if the solution is feasible.
+	 */
+	protected boolean isFeasible(Solution<F> bestSolCurrentGen) {
+		return ObjFunction.isFeasible(bestSolCurrentGen);
+	}
+
+	/**
+	 * Tells whether the current run reached its number of generations or its
+	 * timeout.
+	 * 
+	 * @return true if no more generations should be executed.
+	 */
+	protected boolean isRunOver() {
+
+		if (currentGeneration >= generations)
+			return true;
+
+		long currentTime = System.currentTimeMillis();
+		if (timeoutInSeconds != null && (currentTime - startTime) >= timeoutInSeconds * 1000) {
+			logger.warning(logPrefix + "Timeout reached after " + timeoutInSeconds + " seconds.");
+			return true;
 		}
 
-        if (!ObjFunction.isFeasible(bestSol)) {
-            throw new RuntimeException("No feasible solution found.");
-        }
+		return false;
+	}
+
+	/**
+	 * Ends the current run.
+	 * 
+	 * @return The best feasible solution obtained throughout the run.
+	 */
+	protected Solution<F> finishRun() {
+
+		if (!ObjFunction.isFeasible(bestSol)) {
+			throw new RuntimeException("No feasible solution found.");
+		}
 
 		return bestSol;
 	}
 
+	/**
+	 * Gives the fitness of a chromosome, evaluating it through {@link #fitness}
+	 * only if it has not been evaluated since its genes last changed (or, for
+	 * generation dependent fitness functions, since the current generation
+	 * started).
+	 * 
+	 * @param chromosome
+	 *            The chromosome being evaluated.
+	 * @return The fitness value for the input chromosome.
+	 */
+	protected double getFitness(Chromosome chromosome) {
+
+		if (!chromosome.evaluated
+				|| (isFitnessGenerationDependent() && chromosome.fitnessGeneration != currentGeneration)) {
+			chromosome.fitness = fitness(chromosome);
+			chromosome.fitnessGeneration = currentGeneration;
+			chromosome.evaluated = true;
+		}
+
+		return chromosome.fitness;
+	}
+
+	/**
+	 * Gives the solution decoded from a chromosome, calling {@link #decode}
+	 * only if it has not been decoded since its genes last changed. When
+	 * chromosomes are recycled, their previous solutions are decoded into.
+	 * 
+	 * @param chromosome
+	 *            The chromosome being decoded.
+	 * @return The corresponding fenotype (solution).
+	 */
+	protected Solution<F> getSolution(Chromosome chromosome) {
+
+		if (!chromosome.decoded) {
+			if (recyclePopulations && chromosome.solution != null) {
+				chromosome.solution = decode(chromosome, chromosome.solution);
+			} else {
+				chromosome.solution = decode(chromosome);
+			}
+			chromosome.decoded = true;
+		}
+
+		return chromosome.solution;
+	}
+
+	/**
+	 * Gives the objective function to be used by the current thread. When
+	 * populations are evaluated in parallel, each thread gets its own fork of
+	 * {@link #ObjFunction}, so implementations of {@link #decode} and
+	 * {@link #fitness} must evaluate through this method.
+	 * 
+	 * @return The objective function confined to the current thread.
+	 */
+	protected Evaluator<F> getObjFunction() {
+		return threadObjFunction == null ? ObjFunction : threadObjFunction.get();
+	}
+
+	/**
+	 * Sets the number of threads evaluating the fitness of new chromosomes.
+	 * With a single thread, each new population is evaluated on the calling
+	 * thread; otherwise it is split among a pool of threads. Since each
+	 * chromosome is evaluated independently, the search is the same for any
+	 * number of threads.
+	 * 
+	 * @param threads
+	 *            The number of evaluation threads.
+	 */
+	public void setEvaluationThreads(int threads) {
+		if (evaluationPool != null) {
+			evaluationPool.shutdown();
+			evaluationPool = null;
+			threadObjFunction = null;
+		}
+		evaluationThreads = threads;
+		if (threads > 1) {
+			evaluationPool = new ForkJoinPool(threads);
+			threadObjFunction = ThreadLocal.withInitial(() -> ObjFunction.fork());
+		}
+	}
+
+	/**
+	 * Evaluates the chromosomes of a population that are not evaluated yet,
+	 * splitting them in chunks among the {@link #evaluationThreads} (see
+	 * {@link #evaluateChunk}).
+	 * 
+	 * @param population
+	 *            The population being evaluated.
+	 */
+	protected void evaluatePopulation(Population population) {
+
+		if (evaluationPool == null) {
+			evaluateChunk(population, 0, population.size());
+			return;
+		}
+
+		int chunks = Math.min(population.size(), 4 * evaluationThreads);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+		for (int k = 0; k < chunks; k++) {
+			int from = k * population.size() / chunks;
+			int to = (k + 1) * population.size() / chunks;
+			tasks.add(() -> {
+				evaluateChunk(population, from, to);
+				return null;
+			});
+		}
+		for (Future<Void> task : evaluationPool.invokeAll(tasks)) {
+			try {
+				task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while evaluating the population.", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Failed to evaluate the population.", e.getCause());
+			}
+		}
+
+	}
+
+	/**
+	 * Evaluates the chromosomes in a range of a population, on the current
+	 * thread, through {@link #getFitness}. Subclasses may override it to
+	 * evaluate the chromosomes of the range together, e.g. in a batch that
+	 * shares the reads of the problem data, before calling this method.
+	 * 
+	 * @param population
+	 *            The population being evaluated.
+	 * @param from
+	 *            The first position of the range.
+	 * @param to
+	 *            The position right after the end of the range.
+	 */
+	protected void evaluateChunk(Population population, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			getFitness(population.get(i));
+		}
+
+	}
+
+	/**
+	 * Switches between the generational GA (the default) and the steady-state
+	 * GA described in {@link #nextSteadyStateGeneration}.
+	 * 
+	 * @param steadyState
+	 *            true for the steady-state GA.
+	 */
+	public void setSteadyState(boolean steadyState) {
+		this.steadyState = steadyState;
+	}
+
+	/**
+	 * Switches the generational GA to recycling its populations. Two
+	 * populations of {@link #popSize} chromosomes are allocated once: the
+	 * offsprings of a generation are written into the chromosomes of the
+	 * population that is not the current one, the list of parents is reused,
+	 * the elite chromosome is copied instead of shared, and decoded solutions
+	 * are decoded into the ones they replace. The search is the same as
+	 * without recycling, but the engine itself only allocates when a new best
+	 * solution is recorded.
+	 * 
+	 * @param recyclePopulations
+	 *            true to recycle the populations.
+	 */
+	public void setRecyclePopulations(boolean recyclePopulations) {
+		this.recyclePopulations = recyclePopulations;
+	}
+
+	/**
+	 * Allocates the chromosomes recycled by the generational GA.
+	 */
+	private void allocatePopulationBuffers() {
+
+		populationBuffer1 = new Population();
+		populationBuffer2 = new Population();
+		populationBuffer1.ensureCapacity(popSize);
+		populationBuffer2.ensureCapacity(popSize);
+		for (int i = 0; i < popSize; i++) {
+			populationBuffer1.add(createChromosome());
+		}
+		for (int i = 0; i < popSize; i++) {
+			populationBuffer2.add(createChromosome());
+		}
+		parentsBuffer = new Population();
+		parentsBuffer.ensureCapacity(popSize);
+	}
+
+	/**
+	 * Makes this GA draw its random numbers from the stream identified by
+	 * {@code streamId} among the ones derived from a master seed. Giving each
+	 * run of a batch its own stream makes the batch reproducible even when its
+	 * runs are executed in parallel. By default a GA uses the stream of seed 0.
+	 * 
+	 * @param masterSeed
+	 *            The seed shared by all runs of a batch.
+	 * @param streamId
+	 *            The identifier of this run within the batch.
+	 */
+	public void setSeed(long masterSeed, long streamId) {
+		rng.setSeed(masterSeed, streamId);
+	}
+
     public void setLogger(Logger logger) {
         this.logger = logger;
     }
@@ -254,7 +891,7 @@ public abstract class AbstractGA<G extends Number, F> {
 		double bestFitness = Double.NEGATIVE_INFINITY;
 		Chromosome bestChromosome = null;
 		for (Chromosome c : population) {
-			double fitness = fitness(c);
+			double fitness = getFitness(c);
 			if (fitness > bestFitness) {
 				bestFitness = fitness;
 				bestChromosome = c;
@@ -277,7 +914,7 @@ public abstract class AbstractGA<G extends Number, F> {
 		double worseFitness = Double.POSITIVE_INFINITY;
 		Chromosome worseChromosome = null;
 		for (Chromosome c : population) {
-			double fitness = fitness(c);
+			double fitness = getFitness(c);
 			if (fitness < worseFitness) {
 				worseFitness = fitness;
 				worseChromosome = c;
@@ -287,6 +924,46 @@ public abstract class AbstractGA<G extends Number, F> {
 		return worseChromosome;
 	}
 
+	/**
+	 * Gives the best chromosomes of the current population, e.g. to be sent
+	 * to another population.
+	 * 
+	 * @param count
+	 *            The number of chromosomes wanted.
+	 * @return The best chromosomes of the population, from best to worst.
+	 */
+	protected List<Chromosome> getBestChromosomes(int count) {
+
+		Population sorted = new Population();
+		sorted.addAll(population);
+		sorted.sort((c1, c2) -> Double.compare(getFitness(c2), getFitness(c1)));
+
+		return sorted.subList(0, Math.min(count, sorted.size()));
+	}
+
+	/**
+	 * Brings chromosomes from another population into the current one. Each
+	 * immigrant is copied into a new chromosome, which replaces the worst
+	 * chromosome of the population if it is better than it.
+	 * 
+	 * @param immigrants
+	 *            The chromosomes coming from another population.
+	 */
+	protected void immigrate(List<Chromosome> immigrants) {
+
+		for (Chromosome immigrant : immigrants) {
+			Chromosome copy = createChromosome();
+			copy.recombine(immigrant, immigrant, 0, 0);
+			Chromosome worse = getWorseChromosome(population);
+			if (getFitness(copy) > getFitness(worse)) {
+				population.set(population.indexOf(worse), copy);
+			}
+		}
+		fitnessIndex = null;
+
+		bestChromosome = getBestChromosome(population);
+	}
+
 	/**
 	 * Selection of parents for crossover using the tournament method. Given a
 	 * population of chromosomes, randomly takes two chromosomes and compare
@@ -299,14 +976,20 @@ public abstract class AbstractGA<G extends Number, F> {
 	 */
 	protected Population selectParents(Population population) {
 
-		Population parents = new Population();
+		Population parents;
+		if (recyclePopulations) {
+			parents = parentsBuffer;
+			parents.clear();
+		} else {
+			parents = new Population();
+		}
 
 		while (parents.size() < popSize) {
 			int index1 = rng.nextInt(popSize);
 			Chromosome parent1 = population.get(index1);
 			int index2 = rng.nextInt(popSize);
 			Chromosome parent2 = population.get(index2);
-			if (fitness(parent1) > fitness(parent2)) {
+			if (getFitness(parent1) > getFitness(parent2)) {
 				parents.add(parent1);
 			} else {
 				parents.add(parent2);
@@ -330,12 +1013,26 @@ public abstract class AbstractGA<G extends Number, F> {
 	 * Offspring 1: X1 ... Xi | Yi+1 ... Yj | Xj+1 ... Xn
 	 * Offspring 2: Y1 ... Yi | Xi+1 ... Xj | Yj+1 ... Yn
 	 * 
+	 * When populations are recycled, the offsprings are written into the
+	 * chromosomes of the population buffer not holding the current population.
+	 * 
 	 * @param parents
 	 *            The selected parents for crossover.
 	 * @return The resulting offsprings.
 	 */
 	protected Population crossover(Population parents) {
 
+		if (recyclePopulations) {
+			if (populationBuffer1 == null) {
+				allocatePopulationBuffers();
+			}
+			Population offsprings = population == populationBuffer1 ? populationBuffer2 : populationBuffer1;
+			for (int i = 0; i < popSize; i = i + 2) {
+				crossover(parents.get(i), parents.get(i + 1), offsprings.get(i), offsprings.get(i + 1));
+			}
+			return offsprings;
+		}
+
 		Population offsprings = new Population();
 
 		for (int i = 0; i < popSize; i = i + 2) {
@@ -343,21 +1040,10 @@ public abstract class AbstractGA<G extends Number, F> {
 			Chromosome parent1 = parents.get(i);
 			Chromosome parent2 = parents.get(i + 1);
 
-			int crosspoint1 = rng.nextInt(chromosomeSize + 1);
-			int crosspoint2 = crosspoint1 + rng.nextInt((chromosomeSize + 1) - crosspoint1);
-
-			Chromosome offspring1 = new Chromosome();
-			Chromosome offspring2 = new Chromosome();
+			Chromosome offspring1 = createChromosome();
+			Chromosome offspring2 = createChromosome();
 
-			for (int j = 0; j < chromosomeSize; j++) {
-				if (j >= crosspoint1 && j < crosspoint2) {
-					offspring1.add(parent2.get(j));
-					offspring2.add(parent1.get(j));
-				} else {
-					offspring1.add(parent1.get(j));
-					offspring2.add(parent2.get(j));
-				}
-			}
+			crossover(parent1, parent2, offspring1, offspring2);
 
 			offsprings.add(offspring1);
 			offsprings.add(offspring2);
@@ -368,6 +1054,30 @@ public abstract class AbstractGA<G extends Number, F> {
 
 	}
 
+	/**
+	 * Performs the 2-point crossover described in {@link #crossover(Population)}
+	 * on a pair of parents, writing the resulting genes into two existing
+	 * chromosomes.
+	 * 
+	 * @param parent1
+	 *            The first parent.
+	 * @param parent2
+	 *            The second parent.
+	 * @param offspring1
+	 *            The chromosome receiving the first offspring.
+	 * @param offspring2
+	 *            The chromosome receiving the second offspring.
+	 */
+	protected void crossover(Chromosome parent1, Chromosome parent2, Chromosome offspring1, Chromosome offspring2) {
+
+		int crosspoint1 = rng.nextInt(chromosomeSize + 1);
+		int crosspoint2 = crosspoint1 + rng.nextInt((chromosomeSize + 1) - crosspoint1);
+
+		offspring1.recombine(parent1, parent2, crosspoint1, crosspoint2);
+		offspring2.recombine(parent2, parent1, crosspoint1, crosspoint2);
+
+	}
+
 	/**
 	 * The mutation step takes the offsprings generated by {@link #crossover}
 	 * and to each possible locus, perform a mutation with the expected
@@ -381,21 +1091,56 @@ public abstract class AbstractGA<G extends Number, F> {
 	protected Population mutate(Population offsprings) {
 
 		for (Chromosome c : offsprings) {
+			mutate(c);
+		}
+
+		return offsprings;
+	}
+
+	/**
+	 * Mutates each locus of a chromosome with the probability given by
+	 * {@link #mutationRate}. Instead of drawing a number for every locus, the
+	 * number of loci skipped until the next mutated one is drawn from the
+	 * geometric distribution of parameter {@link #mutationRate}, which gives
+	 * the same distribution of mutated loci at a cost proportional to the
+	 * number of mutations. The rate is read at each call, so it may change
+	 * along the run.
+	 * 
+	 * @param chromosome
+	 *            The chromosome being mutated.
+	 */
+	protected void mutate(Chromosome chromosome) {
+
+		if (mutationRate <= 0.0)
+			return;
+
+		if (mutationRate >= 1.0) {
 			for (int locus = 0; locus < chromosomeSize; locus++) {
-				if (rng.nextDouble() < mutationRate) {
-					mutateGene(c, locus);
-				}
+				mutateGene(chromosome, locus);
 			}
+			return;
+		}
+
+		double logComplement = Math.log1p(-mutationRate);
+		int locus = -1;
+		while (true) {
+			/* number of loci skipped before the next mutation, by inversion of the geometric CDF */
+			double skip = Math.floor(Math.log(1.0 - rng.nextDouble()) / logComplement);
+			if (skip >= chromosomeSize - 1 - locus)
+				break;
+			locus += 1 + (int) skip;
+			mutateGene(chromosome, locus);
 		}
 
-		return offsprings;
 	}
 
 	/**
 	 * Updates the population that will be considered for the next GA
 	 * generation. The method used for updating the population is the elitist,
 	 * which simply takes the worse chromosome from the offsprings and replace
-	 * it with the best chromosome from the previous generation.
+	 * it with the best chromosome from the previous generation. When
+	 * populations are recycled, the best chromosome is copied into the
+	 * discarded one, since its own will receive the next offsprings.
 	 * 
 	 * @param offsprings
 	 *            The offsprings generated by {@link #crossover}.
@@ -404,9 +1149,15 @@ public abstract class AbstractGA<G extends Number, F> {
 	protected Population selectPopulation(Population offsprings) {
 
 		Chromosome worse = getWorseChromosome(offsprings);
-		if (fitness(worse) < fitness(bestChromosome)) {
-			offsprings.remove(worse);
-			offsprings.add(bestChromosome);
+		if (getFitness(worse) < getFitness(bestChromosome)) {
+			if (recyclePopulations) {
+				Chromosome discarded = offsprings.remove(offsprings.indexOf(worse));
+				discarded.copyFrom(bestChromosome);
+				offsprings.add(discarded);
+			} else {
+				offsprings.remove(worse);
+				offsprings.add(bestChromosome);
+			}
 		}
 
 		return offsprings;
@@ -0,0 +1,165 @@
+package metaheuristics.ga;
+
+/**
+ * Indexed priority structure over the positions of a population, keyed by
+ * their fitness. It keeps a max-heap and a min-heap of positions, each one
+ * with the inverse mapping from positions to heap slots, so that the best and
+ * the worst positions are found in O(1) and the fitness of any position is
+ * updated in O(log n), without allocating memory after construction.
+ */
+public class FitnessIndex {
+
+	/**
+	 * the fitness of each position
+	 */
+	private final double[] fitness;
+
+	/**
+	 * the heaps of positions: best on top and worst on top
+	 */
+	private final Heap bestHeap, worstHeap;
+
+	/**
+	 * Constructor for the FitnessIndex class.
+	 *
+	 * @param size
+	 *            The number of positions (i.e. the population size).
+	 */
+	public FitnessIndex(int size) {
+		fitness = new double[size];
+		bestHeap = new Heap(size, 1.0);
+		worstHeap = new Heap(size, -1.0);
+	}
+
+	/**
+	 * Sets the fitness of a position without restoring the heaps, which must
+	 * be done by {@link #build()} once all positions are set.
+	 *
+	 * @param position
+	 *            The position in the population.
+	 * @param value
+	 *            Its fitness.
+	 */
+	public void set(int position, double value) {
+		fitness[position] = value;
+	}
+
+	/**
+	 * Builds both heaps from the fitness of all positions, in O(n).
+	 */
+	public void build() {
+		bestHeap.build();
+		worstHeap.build();
+	}
+
+	/**
+	 * Changes the fitness of a position, e.g. after the chromosome in it was
+	 * replaced, and restores both heaps in O(log n).
+	 *
+	 * @param position
+	 *            The position in the population.
+	 * @param value
+	 *            Its new fitness.
+	 */
+	public void update(int position, double value) {
+		fitness[position] = value;
+		bestHeap.restore(position);
+		worstHeap.restore(position);
+	}
+
+	/**
+	 * @return The fitness of a position.
+	 */
+	public double fitness(int position) {
+		return fitness[position];
+	}
+
+	/**
+	 * @return The position with the highest fitness.
+	 */
+	public int best() {
+		return bestHeap.heap[0];
+	}
+
+	/**
+	 * @return The position with the lowest fitness.
+	 */
+	public int worst() {
+		return worstHeap.heap[0];
+	}
+
+	/**
+	 * A binary heap of positions, ordered by their fitness multiplied by a
+	 * sign (1 for a max-heap, -1 for a min-heap). Ties are broken by the
+	 * lowest position, so the structure is deterministic.
+	 */
+	private final class Heap {
+
+		final int[] heap;
+		final int[] slot;
+		final double sign;
+
+		Heap(int size, double sign) {
+			heap = new int[size];
+			slot = new int[size];
+			this.sign = sign;
+		}
+
+		void build() {
+			for (int i = 0; i < heap.length; i++) {
+				heap[i] = i;
+				slot[i] = i;
+			}
+			for (int i = heap.length / 2 - 1; i >= 0; i--) {
+				siftDown(i);
+			}
+		}
+
+		void restore(int position) {
+			siftUp(slot[position]);
+			siftDown(slot[position]);
+		}
+
+		/**
+		 * Tells whether position a must be above position b in the heap.
+		 */
+		boolean above(int a, int b) {
+			double fa = sign * fitness[a], fb = sign * fitness[b];
+			return fa > fb || (fa == fb && a < b);
+		}
+
+		void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!above(heap[i], heap[parent]))
+					break;
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		void siftDown(int i) {
+			while (true) {
+				int left = 2 * i + 1, right = left + 1, top = i;
+				if (left < heap.length && above(heap[left], heap[top]))
+					top = left;
+				if (right < heap.length && above(heap[right], heap[top]))
+					top = right;
+				if (top == i)
+					break;
+				swap(i, top);
+				i = top;
+			}
+		}
+
+		void swap(int i, int j) {
+			int a = heap[i];
+			heap[i] = heap[j];
+			heap[j] = a;
+			slot[heap[i]] = i;
+			slot[heap[j]] = j;
+		}
+
+	}
+
+}
@@ -0,0 +1,235 @@
+package metaheuristics.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import solutions.Solution;
+
+/**
+ * Island model of parallel GA. A number of independent GAs (the islands)
+ * evolve their own populations in parallel, each one on its own thread, and
+ * every {@link #migrationInterval} generations each island sends copies of its
+ * best {@link #migrants} chromosomes to its neighbours, according to a
+ * {@link Topology}. Migration happens while all islands are stopped, so a run
+ * is reproducible from the seeds of the islands regardless of the scheduling of
+ * their threads.
+ *
+ * @param <G>
+ *            Generic type of the chromosome element (genotype).
+ * @param <F>
+ *            Generic type of the candidate to enter the solution (fenotype).
+ */
+public class IslandGA<G extends Number, F> {
+
+	/**
+	 * The ways islands may be connected for migration.
+	 */
+	public enum Topology {
+		/** island i sends its migrants to island i + 1 */
+		RING,
+		/** every island sends its migrants to every other island */
+		FULLY_CONNECTED,
+		/** at each migration, every island sends its migrants to a random island */
+		RANDOM
+	}
+
+	/**
+	 * the islands, which must not share any evaluation workspace (see
+	 * {@link problems.Evaluator#fork()})
+	 */
+	protected final List<? extends AbstractGA<G, F>> islands;
+
+	/**
+	 * the number of generations between two migrations
+	 */
+	protected int migrationInterval;
+
+	/**
+	 * the number of chromosomes each island sends at a migration
+	 */
+	protected int migrants;
+
+	/**
+	 * the connections between islands
+	 */
+	protected Topology topology;
+
+	/**
+	 * the random number generator used to draw {@link Topology#RANDOM}
+	 * connections
+	 */
+	protected final RandomStream rng = new RandomStream(0);
+
+	protected Logger logger = Logger.getLogger(IslandGA.class.getName());
+
+	/**
+	 * Constructor for the IslandGA class.
+	 *
+	 * @param islands
+	 *            The GAs evolving the populations of the islands.
+	 * @param migrationInterval
+	 *            Number of generations between two migrations.
+	 * @param migrants
+	 *            Number of chromosomes sent by each island at a migration.
+	 * @param topology
+	 *            The connections between islands.
+	 */
+	public IslandGA(List<? extends AbstractGA<G, F>> islands, int migrationInterval, int migrants, Topology topology) {
+		this.islands = islands;
+		this.migrationInterval = migrationInterval;
+		this.migrants = migrants;
+		this.topology = topology;
+		for (int i = 0; i < islands.size(); i++) {
+			islands.get(i).setLogPrefix("[Island " + i + "] ");
+		}
+	}
+
+	/**
+	 * Seeds the random streams of the islands, and the one drawing random
+	 * connections, as distinct streams of a master seed.
+	 *
+	 * @param masterSeed
+	 *            The seed of the run.
+	 */
+	public void setSeed(long masterSeed) {
+		for (int i = 0; i < islands.size(); i++) {
+			islands.get(i).setSeed(masterSeed, i);
+		}
+		rng.setSeed(masterSeed, islands.size());
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+		for (AbstractGA<G, F> island : islands) {
+			island.setLogger(logger);
+		}
+	}
+
+	/**
+	 * Runs the islands until all of them reach their number of generations or
+	 * their timeout, migrating chromosomes every {@link #migrationInterval}
+	 * generations.
+	 *
+	 * @return The best feasible solution found by any island.
+	 */
+	public Solution<F> solve() {
+
+		ExecutorService executor = Executors.newFixedThreadPool(islands.size());
+		try {
+
+			List<AbstractGA<G, F>> running = new ArrayList<AbstractGA<G, F>>(islands);
+			runOnIslands(executor, running, island -> {
+				island.startRun();
+				return true;
+			});
+
+			while (!running.isEmpty()) {
+
+				List<Boolean> over = runOnIslands(executor, running, island -> {
+					for (int g = 0; g < migrationInterval; g++) {
+						if (island.isRunOver())
+							return true;
+						island.nextGeneration();
+					}
+					return island.isRunOver();
+				});
+
+				List<AbstractGA<G, F>> stillRunning = new ArrayList<AbstractGA<G, F>>();
+				for (int i = 0; i < running.size(); i++) {
+					if (!over.get(i))
+						stillRunning.add(running.get(i));
+				}
+				running = stillRunning;
+
+				migrate(running);
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Solution<F> bestSol = null;
+		for (AbstractGA<G, F> island : islands) {
+			if (island.ObjFunction.isFeasible(island.bestSol) && (bestSol == null || island.bestSol.cost < bestSol.cost))
+				bestSol = island.bestSol;
+		}
+		if (bestSol == null) {
+			throw new RuntimeException("No feasible solution found.");
+		}
+		logger.info("Best solution among " + islands.size() + " islands = " + bestSol);
+
+		return bestSol;
+	}
+
+	/**
+	 * Sends copies of the best chromosomes of each island to its neighbours.
+	 * All emigrants are chosen before any island receives immigrants.
+	 *
+	 * @param group
+	 *            The islands taking part in the migration.
+	 */
+	protected void migrate(List<AbstractGA<G, F>> group) {
+
+		int n = group.size();
+		if (n < 2)
+			return;
+
+		List<List<AbstractGA<G, F>.Chromosome>> emigrants = new ArrayList<List<AbstractGA<G, F>.Chromosome>>();
+		for (AbstractGA<G, F> island : group) {
+			emigrants.add(new ArrayList<AbstractGA<G, F>.Chromosome>(island.getBestChromosomes(migrants)));
+		}
+
+		for (int i = 0; i < n; i++) {
+			switch (topology) {
+			case RING:
+				group.get((i + 1) % n).immigrate(emigrants.get(i));
+				break;
+			case FULLY_CONNECTED:
+				for (int j = 0; j < n; j++) {
+					if (j != i)
+						group.get(j).immigrate(emigrants.get(i));
+				}
+				break;
+			case RANDOM:
+				int j = rng.nextInt(n - 1);
+				group.get(j < i ? j : j + 1).immigrate(emigrants.get(i));
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Executes a task on each island in parallel and waits for all of them.
+	 *
+	 * @return The results of the task, in the order of the islands.
+	 */
+	private List<Boolean> runOnIslands(ExecutorService executor, List<AbstractGA<G, F>> group, Predicate<AbstractGA<G, F>> task) {
+
+		List<Callable<Boolean>> calls = new ArrayList<Callable<Boolean>>();
+		for (AbstractGA<G, F> island : group) {
+			calls.add(() -> task.test(island));
+		}
+
+		List<Boolean> results = new ArrayList<Boolean>();
+		try {
+			for (Future<Boolean> future : executor.invokeAll(calls)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while running the islands.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("An island failed.", e.getCause());
+		}
+
+		return results;
+	}
+
+}
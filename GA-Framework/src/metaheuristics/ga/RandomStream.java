@@ -0,0 +1,134 @@
+package metaheuristics.ga;
+
+import java.util.Random;
+
+/**
+ * A stream of pseudorandom numbers produced by the xoshiro256** generator [1].
+ * Each stream is meant to be confined to a single thread: unlike
+ * {@link Random}, its state is not updated atomically, so it is much faster
+ * and threads never contend for it. Independent streams are derived from a
+ * master seed and a stream identifier, so that a batch of runs executed in
+ * parallel is reproducible no matter how its runs are scheduled.
+ *
+ * It extends {@link Random} so that it can be used wherever one is expected,
+ * e.g. in {@link java.util.Collections#shuffle(java.util.List, Random)}.
+ *
+ * [1] Blackman, Vigna. Scrambled linear pseudorandom number generators. ACM
+ * Trans. Math. Softw. (2021) 47(4). DOI 10.1145/3460772.
+ */
+@SuppressWarnings("serial")
+public class RandomStream extends Random {
+
+	/**
+	 * the state of the generator
+	 */
+	private long s0, s1, s2, s3;
+
+	/**
+	 * Creates the stream of a given seed.
+	 *
+	 * @param seed
+	 *            The seed of the stream.
+	 */
+	public RandomStream(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Creates the stream identified by {@code streamId} among the ones derived
+	 * from a master seed.
+	 *
+	 * @param masterSeed
+	 *            The seed shared by all streams of a batch of runs.
+	 * @param streamId
+	 *            The identifier of the stream within the batch.
+	 */
+	public RandomStream(long masterSeed, long streamId) {
+		this(streamSeed(masterSeed, streamId));
+	}
+
+	/**
+	 * Gives the seed of the stream identified by {@code streamId} among the
+	 * ones derived from a master seed.
+	 *
+	 * @param masterSeed
+	 *            The seed shared by all streams of a batch of runs.
+	 * @param streamId
+	 *            The identifier of the stream within the batch.
+	 * @return The seed of the stream.
+	 */
+	public static long streamSeed(long masterSeed, long streamId) {
+		return mix(mix(masterSeed) + streamId * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Restarts the stream from a given seed. The four words of state are
+	 * obtained by a SplitMix64 generator seeded with it, as recommended by the
+	 * authors of xoshiro.
+	 */
+	@Override
+	public void setSeed(long seed) {
+		super.setSeed(seed); // discards the pending gaussian
+		s0 = mix(seed += 0x9E3779B97F4A7C15L);
+		s1 = mix(seed += 0x9E3779B97F4A7C15L);
+		s2 = mix(seed += 0x9E3779B97F4A7C15L);
+		s3 = mix(seed += 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Restarts the stream as the one identified by {@code streamId} among the
+	 * ones derived from a master seed.
+	 *
+	 * @param masterSeed
+	 *            The seed shared by all streams of a batch of runs.
+	 * @param streamId
+	 *            The identifier of the stream within the batch.
+	 */
+	public void setSeed(long masterSeed, long streamId) {
+		setSeed(streamSeed(masterSeed, streamId));
+	}
+
+	/**
+	 * Derives a new stream from this one, e.g. for a worker thread or an
+	 * island of a parallel GA. The derived stream is determined by the state
+	 * of this one, so it is reproducible as well.
+	 *
+	 * @return A new stream.
+	 */
+	public RandomStream split() {
+		return new RandomStream(nextLong());
+	}
+
+	@Override
+	public long nextLong() {
+		long result = Long.rotateLeft(s1 * 5, 7) * 9;
+		long t = s1 << 17;
+		s2 ^= s0;
+		s3 ^= s1;
+		s1 ^= s2;
+		s0 ^= s3;
+		s2 ^= t;
+		s3 = Long.rotateLeft(s3, 45);
+		return result;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * The SplitMix64 finalizer, a bijective mixing of the bits of a word.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -33,6 +33,16 @@ public interface Evaluator<E> {
 
     public abstract boolean isFeasible(Solution<E> sol);
 
+	/**
+	 * Creates an evaluator of the same problem which shares the immutable
+	 * data of this one (e.g. its coefficients) but owns its own evaluation
+	 * workspace, so that both can be used concurrently by different threads.
+	 * Evaluators without any workspace may return themselves.
+	 * 
+	 * @return an evaluator equivalent to this one.
+	 */
+	public abstract Evaluator<E> fork();
+
 	/**
 	 * Evaluates the cost variation of inserting an element into a solution
 	 * according to an objective function.
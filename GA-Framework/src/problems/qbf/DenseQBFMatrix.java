@@ -0,0 +1,184 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * A {@link QBFMatrix} stored as a flat, row-major array of primitive doubles
+ * holding the symmetric matrix A + A' (with the diagonal of A). Each row is
+ * contiguous, so a contribution query is a single sequential sweep, and a full
+ * evaluation only reads the upper half of the rows of the variables set to 1.
+ * It takes 8 bytes per cell, against about 20 for a matrix of boxed doubles.
+ * The sweeps are performed by the {@link QBFKernels}, vectorized when the
+ * JDK Vector API is available.
+ */
+public class DenseQBFMatrix extends QBFMatrix {
+
+	/**
+	 * the largest fraction of selected variables for which a solution is
+	 * evaluated pair by pair, in O(k^2) scattered reads, instead of by
+	 * sequential sweeps of their rows, in O(k.n)
+	 */
+	public static final double PAIRWISE_EVALUATION_FRACTION = 0.25;
+
+	/**
+	 * the number of columns of the tiles of a batch evaluation, so that the
+	 * same columns of all vectors of a batch fit in the L2 cache
+	 */
+	public static final int BATCH_BLOCK_COLUMNS = 512;
+
+	private static final QBFKernels KERNELS = QBFKernels.get();
+
+	/**
+	 * the coefficient of x_i.x_j, at i * size + j
+	 */
+	private final double[] symmetric;
+
+	/**
+	 * Creates a matrix of zeros, to be filled by {@link #set}.
+	 *
+	 * @param size
+	 *            The dimension of the matrix.
+	 */
+	public DenseQBFMatrix(int size) {
+		super(size);
+		if ((long) size * size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("A dense QBF matrix cannot have dimension " + size + ".");
+		}
+		symmetric = new double[size * size];
+	}
+
+	/**
+	 * Sets a coefficient of the upper triangle while the matrix is being
+	 * built.
+	 *
+	 * @param i
+	 *            The row of the coefficient.
+	 * @param j
+	 *            The column of the coefficient, not smaller than i.
+	 * @param value
+	 *            a_ij.
+	 */
+	void set(int i, int j, double value) {
+		symmetric[i * size + j] = value;
+		symmetric[j * size + i] = value;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? symmetric[i * size + j] : 0.0;
+	}
+
+	@Override
+	public double symmetric(int i, int j) {
+		return symmetric[i * size + j];
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			int row = i * size;
+			double aux = x[i] * symmetric[row + i] + KERNELS.dot(symmetric, row + i + 1, x, i + 1, size - i - 1);
+			sum += aux * x[i];
+		}
+
+		return sum;
+	}
+
+	@Override
+	public double evaluate(double[] x, int[] selected, int count) {
+
+		if (count > PAIRWISE_EVALUATION_FRACTION * size)
+			return evaluate(x);
+
+		double sum = 0.0;
+		for (int a = 0; a < count; a++) {
+			int row = selected[a] * size;
+			double aux = symmetric[row + selected[a]];
+			for (int b = a + 1; b < count; b++) {
+				aux += symmetric[row + selected[b]];
+			}
+			sum += aux;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The matrix is swept in blocks of {@link #BATCH_BLOCK_COLUMNS} columns.
+	 * Within a block, each row segment of A + A' is read once and multiplied
+	 * by the same segment of every vector having that row's variable set to 1
+	 * (see {@link QBFKernels#dotBatch}), while the segments of the vectors
+	 * stay in cache for all rows. So A is streamed from memory once per batch
+	 * instead of once per vector.
+	 */
+	@Override
+	public void evaluateBatch(double[] xs, int count, int[] rows, double[] results) {
+
+		Arrays.fill(results, 0, count, 0.0);
+
+		for (int blockStart = 0; blockStart < size; blockStart += BATCH_BLOCK_COLUMNS) {
+			int blockEnd = Math.min(size, blockStart + BATCH_BLOCK_COLUMNS);
+			for (int i = 0; i < blockEnd; i++) {
+
+				/* the vectors having variable i set to 1 */
+				int selectedRows = 0;
+				for (int r = 0; r < count; r++) {
+					if (xs[r * size + i] != 0.0)
+						rows[selectedRows++] = r;
+				}
+				if (selectedRows == 0)
+					continue;
+
+				if (i >= blockStart) {
+					for (int c = 0; c < selectedRows; c++) {
+						results[rows[c]] += symmetric[i * size + i];
+					}
+				}
+
+				/* the part of row i inside the block, right of the diagonal */
+				int from = Math.max(blockStart, i + 1);
+				if (from < blockEnd) {
+					KERNELS.dotBatch(symmetric, i * size + from, xs, rows, selectedRows, size, from, blockEnd - from, results);
+				}
+			}
+		}
+	}
+
+	@Override
+	public double contribution(int i, double[] x) {
+
+		int row = i * size;
+		double sum = KERNELS.dot(symmetric, row, x, 0, size);
+
+		return sum + (1.0 - x[i]) * symmetric[row + i];
+	}
+
+	@Override
+	public void addSymmetricRow(int i, double factor, double[] target) {
+
+		int row = i * size;
+		double diagonal = target[i];
+		KERNELS.axpy(factor, symmetric, row, target, 0, size);
+		target[i] = diagonal;
+	}
+
+	@Override
+	public double absoluteSum() {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			for (int j = i; j < size; j++) {
+				sum += Math.abs(symmetric[i * size + j]);
+			}
+		}
+
+		return sum;
+	}
+
+}
@@ -0,0 +1,197 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+import solutions.Solution;
+
+/**
+ * A solution of a QBF that is changed one flip at a time, for local searches
+ * and delta evaluations. Besides the binary variables x, it maintains the
+ * contribution of every variable, c_i = a_ii + \sum_{j != i}{(a_ij + a_ji) *
+ * x_j}, i.e. the variation of the QBF when x_i goes from 0 to 1. With it, the
+ * variation of any flip or exchange is answered in O(1), and a flip updates
+ * all contributions with a single row of A + A', in O(n) for a dense matrix or
+ * O(degree) for a sparse one, instead of the O(n) reset and O(n) scan made by
+ * each query of {@link QBF}.
+ *
+ * Values are multiplied by a sign, so that the same class serves a QBF (+1)
+ * and its inverse (-1), as created by {@link QBF#createIncrementalSolution()}.
+ * An instance is a workspace of a single thread.
+ */
+public class IncrementalQBFSolution {
+
+	/**
+	 * the coefficients of the QBF
+	 */
+	protected final QBFMatrix A;
+
+	/**
+	 * +1 for a QBF, -1 for its inverse
+	 */
+	protected final double sign;
+
+	/**
+	 * the binary variables x
+	 */
+	protected final double[] variables;
+
+	/**
+	 * the contribution c_i of each variable, without the sign
+	 */
+	protected final double[] contributions;
+
+	/**
+	 * the value of the QBF on {@link #variables}, with the sign
+	 */
+	protected double value;
+
+	/**
+	 * the number of variables set to 1
+	 */
+	protected int cardinality;
+
+	/**
+	 * Creates an empty solution, i.e. with all variables set to 0.
+	 *
+	 * @param A
+	 *            The coefficients of the QBF.
+	 * @param sign
+	 *            +1 for the QBF, or -1 for its inverse.
+	 */
+	public IncrementalQBFSolution(QBFMatrix A, double sign) {
+		this.A = A;
+		this.sign = sign;
+		this.variables = new double[A.size()];
+		this.contributions = new double[A.size()];
+		clear();
+	}
+
+	/**
+	 * Sets all variables to 0, in O(n).
+	 */
+	public void clear() {
+		Arrays.fill(variables, 0.0);
+		for (int i = 0; i < contributions.length; i++) {
+			contributions[i] = A.symmetric(i, i);
+		}
+		value = 0.0;
+		cardinality = 0;
+	}
+
+	/**
+	 * Sets the variables to the elements of a solution, flipping them one at a
+	 * time from the empty solution.
+	 *
+	 * @param sol
+	 *            The solution, as a list of the variables set to 1.
+	 */
+	public void set(Solution<Integer> sol) {
+		clear();
+		for (Integer elem : sol) {
+			if (variables[elem] == 0.0)
+				flip(elem);
+		}
+	}
+
+	/**
+	 * Copies the variables set to 1, and the value, to a solution.
+	 *
+	 * @param sol
+	 *            The solution receiving the elements, which is cleared first.
+	 */
+	public void copyTo(Solution<Integer> sol) {
+		sol.clear();
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i] != 0.0)
+				sol.add(i);
+		}
+		sol.cost = value;
+	}
+
+	/**
+	 * @return The value of the QBF on the current variables.
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return The number of variables set to 1.
+	 */
+	public int getCardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * @return Whether variable i is set to 1.
+	 */
+	public boolean isSelected(int i) {
+		return variables[i] != 0.0;
+	}
+
+	/**
+	 * Gives the variation of the value if variable i were flipped, in O(1).
+	 *
+	 * @param i
+	 *            The index of the variable.
+	 * @return The variation of the value.
+	 */
+	public double evaluateFlip(int i) {
+		return variables[i] == 0.0 ? sign * contributions[i] : -sign * contributions[i];
+	}
+
+	/**
+	 * Same as {@link QBF#evaluateInsertionQBF(int)}, in O(1).
+	 */
+	public double evaluateInsertion(int i) {
+		return variables[i] == 0.0 ? sign * contributions[i] : 0.0;
+	}
+
+	/**
+	 * Same as {@link QBF#evaluateRemovalQBF(int)}, in O(1).
+	 */
+	public double evaluateRemoval(int i) {
+		return variables[i] != 0.0 ? -sign * contributions[i] : 0.0;
+	}
+
+	/**
+	 * Same as {@link QBF#evaluateExchangeQBF(int, int)}, in O(1) for a dense
+	 * matrix (the coefficient of x_in.x_out is looked up in O(log degree) in a
+	 * sparse one).
+	 */
+	public double evaluateExchange(int in, int out) {
+
+		if (in == out)
+			return 0.0;
+		if (variables[in] != 0.0)
+			return evaluateRemoval(out);
+		if (variables[out] == 0.0)
+			return evaluateInsertion(in);
+
+		return sign * (contributions[in] - contributions[out] - A.symmetric(in, out));
+	}
+
+	/**
+	 * Flips variable i, updating the value and the contributions of all other
+	 * variables.
+	 *
+	 * @param i
+	 *            The index of the variable.
+	 */
+	public void flip(int i) {
+
+		value += evaluateFlip(i);
+		double factor;
+		if (variables[i] == 0.0) {
+			variables[i] = 1.0;
+			cardinality++;
+			factor = 1.0;
+		} else {
+			variables[i] = 0.0;
+			cardinality--;
+			factor = -1.0;
+		}
+		A.addSymmetricRow(i, factor, contributions);
+	}
+
+}
@@ -0,0 +1,356 @@
+package problems.qbf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * A {@link QBFMatrix} kept off-heap, in a memory-mapped file holding the
+ * symmetric matrix A + A' (with the diagonal of A) row-major, in the layout of
+ * a {@link DenseQBFMatrix}. Only the diagonal lives on the heap, so instances
+ * far larger than the heap, e.g. n = 50,000 (20 GB), are evaluated with the
+ * pages of the file cached by the operating system, and the garbage collector
+ * never sees the coefficients.
+ *
+ * The symmetric file is built once from a binary instance (see
+ * {@link QBFInstanceFile}) by transposing its upper triangle tile by tile, and
+ * is kept to be reused by later runs: in the directory given by the system
+ * property {@value #DIRECTORY_PROPERTY} if it is set, otherwise next to the
+ * instance, with extension {@link #EXTENSION}, or in the temporary directory
+ * if the instance's directory is not writable. It is mapped in windows of
+ * whole rows, so every query below reads the rows of A + A' sequentially.
+ */
+public class MappedQBFMatrix extends QBFMatrix {
+
+	/**
+	 * the extension of the symmetric file, appended to the instance's name
+	 */
+	public static final String EXTENSION = ".sym";
+
+	/**
+	 * the system property naming the directory where symmetric files are kept
+	 */
+	public static final String DIRECTORY_PROPERTY = "qbf.symmetricDir";
+
+	private static final Logger logger = Logger.getLogger(MappedQBFMatrix.class.getName());
+
+	/**
+	 * the side of the tiles in which the upper triangle is transposed
+	 */
+	static final int TILE = 1024;
+
+	/**
+	 * the coefficients a_ii
+	 */
+	private final double[] diagonal;
+
+	/**
+	 * the mapped regions of the symmetric file, each one holding
+	 * {@link #rowsPerWindow} rows
+	 */
+	private final DoubleBuffer[] windows;
+
+	private final int rowsPerWindow;
+
+	/**
+	 * Maps the symmetric file of a binary instance, building it first if it is
+	 * missing or older than the instance (see {@link #symmetricFile}).
+	 *
+	 * @param filename
+	 *            The binary instance.
+	 * @param instance
+	 *            The instance, opened.
+	 * @return The matrix of the instance.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static MappedQBFMatrix open(String filename, QBFInstanceFile instance) throws IOException {
+
+		int n = instance.size;
+		File source = new File(filename).getAbsoluteFile();
+		File symmetric = symmetricFile(source, n);
+		if (!isUpToDate(symmetric, source, n)) {
+			logger.info("Building the symmetric file " + symmetric + " of " + source);
+			Path partial = Paths.get(symmetric.getPath() + ".part");
+			transpose(instance, partial);
+			Files.move(partial, symmetric.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		return new MappedQBFMatrix(n, symmetric.toPath());
+	}
+
+	/**
+	 * Chooses where the symmetric file of an instance is kept. If the system
+	 * property {@value #DIRECTORY_PROPERTY} is set, it is kept in that
+	 * directory. Otherwise it is kept next to the instance, unless it is not
+	 * already there and the instance's directory is not writable, in which
+	 * case it is kept in the temporary directory. Away from the instance, its
+	 * name carries a hash of the instance's path, so that instances with the
+	 * same name in different directories do not share it.
+	 *
+	 * @param source
+	 *            The binary instance, with an absolute path.
+	 * @param n
+	 *            The dimension of the instance.
+	 * @return The symmetric file, which may not exist yet.
+	 */
+	private static File symmetricFile(File source, int n) {
+
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null) {
+			File beside = new File(source.getPath() + EXTENSION);
+			File parent = source.getParentFile();
+			if (isUpToDate(beside, source, n) || (parent != null && Files.isWritable(parent.toPath())))
+				return beside;
+			directory = System.getProperty("java.io.tmpdir");
+		}
+
+		String name = source.getName() + "-" + Integer.toHexString(source.getPath().hashCode()) + EXTENSION;
+		return new File(directory, name);
+	}
+
+	/**
+	 * Tells whether a symmetric file exists, has the size of the instance's
+	 * matrix and is not older than the instance.
+	 */
+	private static boolean isUpToDate(File symmetric, File source, int n) {
+		return symmetric.isFile() && symmetric.length() == 8L * n * n && symmetric.lastModified() >= source.lastModified();
+	}
+
+	/**
+	 * Maps a symmetric file.
+	 *
+	 * @param size
+	 *            The dimension of the matrix.
+	 * @param symmetricFile
+	 *            The file holding A + A' row-major.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	MappedQBFMatrix(int size, Path symmetricFile) throws IOException {
+
+		super(size);
+		rowsPerWindow = (int) Math.max(1, Math.min(size, QBFInstanceFile.MAX_WINDOW / (8L * size)));
+		windows = new DoubleBuffer[(size + rowsPerWindow - 1) / rowsPerWindow];
+		diagonal = new double[size];
+
+		try (FileChannel channel = FileChannel.open(symmetricFile, StandardOpenOption.READ)) {
+			for (int w = 0; w < windows.length; w++) {
+				long firstRow = (long) w * rowsPerWindow;
+				long rows = Math.min(rowsPerWindow, size - firstRow);
+				windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, 8L * firstRow * size, 8L * rows * size)
+						.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			diagonal[i] = row(i).get(rowOffset(i) + i);
+		}
+	}
+
+	/**
+	 * Writes A + A' row-major from the upper triangle of an instance. For each
+	 * tile of the triangle, read row segment by row segment, the tile is
+	 * written in place and its transpose in the mirrored position, so the
+	 * triangle is read once and only two tiles are held in memory.
+	 */
+	private static void transpose(QBFInstanceFile instance, Path target) throws IOException {
+
+		int n = instance.size;
+		double[] tile = new double[TILE * TILE];
+		double[] mirrored = new double[TILE * TILE];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(8 * TILE).order(ByteOrder.LITTLE_ENDIAN);
+
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+
+			for (int i0 = 0; i0 < n; i0 += TILE) {
+				int rows = Math.min(TILE, n - i0);
+				for (int j0 = i0; j0 < n; j0 += TILE) {
+					int columns = Math.min(TILE, n - j0);
+
+					/* tile[a][b] = a_(i0+a)(j0+b), zero below the diagonal */
+					for (int a = 0; a < rows; a++) {
+						int from = Math.max(0, i0 + a - j0);
+						Arrays.fill(tile, a * TILE, a * TILE + from, 0.0);
+						if (from < columns)
+							instance.readCoefficients(i0 + a, j0 + from, tile, a * TILE + from, columns - from, buffer);
+					}
+
+					if (i0 == j0) {
+						for (int a = 0; a < rows; a++) {
+							for (int b = 0; b < a; b++) {
+								tile[a * TILE + b] = tile[b * TILE + a];
+							}
+						}
+					} else {
+						for (int a = 0; a < rows; a++) {
+							for (int b = 0; b < columns; b++) {
+								mirrored[b * TILE + a] = tile[a * TILE + b];
+							}
+						}
+						write(out, j0, i0, mirrored, columns, rows, n, buffer);
+					}
+					write(out, i0, j0, tile, rows, columns, n, buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a tile of the symmetric matrix, row segment by row segment.
+	 */
+	private static void write(FileChannel out, int i0, int j0, double[] tile, int rows, int columns, int n, ByteBuffer buffer)
+			throws IOException {
+
+		for (int a = 0; a < rows; a++) {
+			buffer.clear();
+			buffer.asDoubleBuffer().put(tile, a * TILE, columns);
+			buffer.limit(8 * columns);
+			long position = 8L * ((long) (i0 + a) * n + j0);
+			while (buffer.hasRemaining()) {
+				position += out.write(buffer, position);
+			}
+		}
+	}
+
+	/**
+	 * @return The window holding row i.
+	 */
+	private DoubleBuffer row(int i) {
+		return windows[i / rowsPerWindow];
+	}
+
+	/**
+	 * @return The position of row i within its window.
+	 */
+	private int rowOffset(int i) {
+		return (i % rowsPerWindow) * size;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? symmetric(i, j) : 0.0;
+	}
+
+	@Override
+	public double symmetric(int i, int j) {
+		return row(i).get(rowOffset(i) + j);
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			DoubleBuffer window = row(i);
+			int row = rowOffset(i);
+			double aux = diagonal[i];
+			for (int j = i + 1; j < size; j++) {
+				aux += window.get(row + j) * x[j];
+			}
+			sum += aux;
+		}
+
+		return sum;
+	}
+
+	@Override
+	public double evaluate(double[] x, int[] selected, int count) {
+
+		if (count > DenseQBFMatrix.PAIRWISE_EVALUATION_FRACTION * size)
+			return evaluate(x);
+
+		double sum = 0.0;
+		for (int a = 0; a < count; a++) {
+			DoubleBuffer window = row(selected[a]);
+			int row = rowOffset(selected[a]);
+			double aux = diagonal[selected[a]];
+			for (int b = a + 1; b < count; b++) {
+				aux += window.get(row + selected[b]);
+			}
+			sum += aux;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Each row of A + A' is read once for all vectors having its variable set
+	 * to 1, so the file is streamed once per batch instead of once per vector.
+	 */
+	@Override
+	public void evaluateBatch(double[] xs, int count, int[] rows, double[] results) {
+
+		Arrays.fill(results, 0, count, 0.0);
+		for (int i = 0; i < size; i++) {
+			DoubleBuffer window = row(i);
+			int row = rowOffset(i);
+			for (int r = 0; r < count; r++) {
+				int x = r * size;
+				if (xs[x + i] == 0.0)
+					continue;
+				double aux = diagonal[i];
+				for (int j = i + 1; j < size; j++) {
+					aux += window.get(row + j) * xs[x + j];
+				}
+				results[r] += aux;
+			}
+		}
+	}
+
+	@Override
+	public double contribution(int i, double[] x) {
+
+		DoubleBuffer window = row(i);
+		int row = rowOffset(i);
+		double sum = diagonal[i];
+		for (int j = 0; j < size; j++) {
+			if (j != i)
+				sum += window.get(row + j) * x[j];
+		}
+
+		return sum;
+	}
+
+	@Override
+	public void addSymmetricRow(int i, double factor, double[] target) {
+
+		DoubleBuffer window = row(i);
+		int row = rowOffset(i);
+		for (int j = 0; j < size; j++) {
+			if (j != i)
+				target[j] += factor * window.get(row + j);
+		}
+	}
+
+	@Override
+	public double absoluteSum() {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			DoubleBuffer window = row(i);
+			int row = rowOffset(i);
+			for (int j = i; j < size; j++) {
+				sum += Math.abs(window.get(row + j));
+			}
+		}
+
+		return sum;
+	}
+
+}
@@ -31,14 +31,43 @@ public class QBF implements Evaluator<Integer> {
 	public final Integer size;
 
 	/**
-	 * The array of numbers representing the domain.
+	 * The array of numbers representing the domain. It is changed through
+	 * {@link #setVariables}, {@link #flipVariable} and
+	 * {@link #resetVariables}, which keep {@link #selected} in step with it.
 	 */
-	public final Double[] variables;
+	public final double[] variables;
+
+	/**
+	 * The indices of the variables set to 1, in the first
+	 * {@link #cardinality} positions.
+	 */
+	protected final int[] selected;
+
+	/**
+	 * The position in {@link #selected} of each variable set to 1.
+	 */
+	protected final int[] position;
+
+	/**
+	 * The number of variables set to 1.
+	 */
+	protected int cardinality;
+
+	/**
+	 * The variables of the solutions of the last call to
+	 * {@link #evaluateBatch}, one row per solution.
+	 */
+	protected double[] batchVariables;
+
+	/**
+	 * The workspace of the matrix in {@link #evaluateBatch}.
+	 */
+	protected int[] batchRows;
 
 	/**
 	 * The matrix A of coefficients for the QBF f(x) = x'.A.x
 	 */
-	public Double[][] A;
+	public QBFMatrix A;
 
 	/**
 	 * The constructor for QuadracticBinaryFunction class. The filename of the
@@ -53,11 +82,65 @@ public class QBF implements Evaluator<Integer> {
 	public QBF(String filename) throws IOException {
 		size = readInput(filename);
 		variables = allocateVariables();
+		selected = new int[size];
+		position = new int[size];
+	}
+
+	/**
+	 * Constructor for a QBF whose coefficients are already built, e.g. by the
+	 * reduction of another one.
+	 * 
+	 * @param A
+	 *            The matrix of coefficients.
+	 */
+	public QBF(QBFMatrix A) {
+		size = A.size();
+		this.A = A;
+		variables = allocateVariables();
+		selected = new int[size];
+		position = new int[size];
+	}
+
+	/**
+	 * Constructor used by {@link #fork()}, sharing the coefficients of another
+	 * QBF while allocating a new array of variables.
+	 * 
+	 * @param other
+	 *            The QBF whose coefficients are shared.
+	 */
+	protected QBF(QBF other) {
+		size = other.size;
+		A = other.A;
+		variables = allocateVariables();
+		selected = new int[size];
+		position = new int[size];
+	}
+
+	/**
+	 * {@inheritDoc} The matrix {@link #A} is shared, while the
+	 * {@link #variables} used as workspace are not.
+	 */
+	@Override
+	public QBF fork() {
+		return new QBF(this);
+	}
+
+	/**
+	 * Creates an {@link IncrementalQBFSolution} over the coefficients of this
+	 * QBF, starting empty. It answers the same insertion, removal and exchange
+	 * queries as this class in O(1), for solutions changed one flip at a time.
+	 * 
+	 * @return An empty incremental solution.
+	 */
+	public IncrementalQBFSolution createIncrementalSolution() {
+		return new IncrementalQBFSolution(A, 1.0);
 	}
 
 	/**
 	 * Evaluates the value of a solution by transforming it into a vector. This
 	 * is required to perform the matrix multiplication which defines a QBF.
+	 * The indices of the solution are also kept in {@link #selected}, for
+	 * {@link #evaluateSelectedQBF()}.
 	 * 
 	 * @param sol
 	 *            the solution which will be evaluated.
@@ -67,12 +150,38 @@ public class QBF implements Evaluator<Integer> {
 		resetVariables();
 		if (!sol.isEmpty()) {
 			for (Integer elem : sol) {
-				variables[elem] = 1.0;
+				if (variables[elem] == 0.0) {
+					variables[elem] = 1.0;
+					position[elem] = cardinality;
+					selected[cardinality++] = elem;
+				}
 			}
 		}
 
 	}
 
+	/**
+	 * Flips a variable of the QBF, keeping the indices of the variables set
+	 * to 1 up to date for {@link #evaluateSelectedQBF()}.
+	 * 
+	 * @param i
+	 *            Index of the variable being flipped.
+	 */
+	public void flipVariable(int i) {
+
+		if (variables[i] == 0.0) {
+			variables[i] = 1.0;
+			position[i] = cardinality;
+			selected[cardinality++] = i;
+		} else {
+			variables[i] = 0.0;
+			int last = selected[--cardinality];
+			selected[position[i]] = last;
+			position[last] = position[i];
+		}
+
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -96,7 +205,7 @@ public class QBF implements Evaluator<Integer> {
 	public Double evaluate(Solution<Integer> sol) {
 
 		setVariables(sol);
-		return sol.cost = evaluateQBF();
+		return sol.cost = evaluateSelectedQBF();
 
 	}
 
@@ -106,21 +215,58 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return The value of the QBF.
 	 */
-	public Double evaluateQBF() {
+	public double evaluateQBF() {
 
-		Double aux = (double) 0, sum = (double) 0;
-		Double vecAux[] = new Double[size];
+		return A.evaluate(variables);
 
-		for (int i = 0; i < size; i++) {
-			for (int j = 0; j < size; j++) {
-				aux += variables[j] * A[i][j];
+	}
+
+	/**
+	 * Evaluates several solutions at once, given as the rows of a bit matrix,
+	 * so that the coefficients are read once for all of them (see
+	 * {@link QBFMatrix#evaluateBatch}).
+	 * 
+	 * @param bits
+	 *            The solutions, variable i of solution r being bit (i % 64) of
+	 *            bits[r][i / 64].
+	 * @param count
+	 *            The number of solutions.
+	 * @param costs
+	 *            Receives the value of the QBF on each solution.
+	 */
+	public void evaluateBatch(long[][] bits, int count, double[] costs) {
+
+		if (batchVariables == null || batchVariables.length < count * size) {
+			batchVariables = new double[count * size];
+			batchRows = new int[count];
+		}
+		Arrays.fill(batchVariables, 0, count * size, 0.0);
+		for (int r = 0; r < count; r++) {
+			for (int w = 0; w < bits[r].length; w++) {
+				for (long word = bits[r][w]; word != 0; word &= word - 1) {
+					int i = (w << 6) + Long.numberOfTrailingZeros(word);
+					if (i < size)
+						batchVariables[r * size + i] = 1.0;
+				}
 			}
-			vecAux[i] = aux;
-			sum += aux * variables[i];
-			aux = (double) 0;
 		}
 
-		return sum;
+		A.evaluateBatch(batchVariables, count, batchRows, costs);
+
+	}
+
+	/**
+	 * Evaluates the QBF on the variables set by the last call to
+	 * {@link #setVariables}, visiting only the coefficients of the selected
+	 * variables when they are few (see
+	 * {@link QBFMatrix#evaluate(double[], int[], int)}), so that solutions
+	 * with k elements cost O(k^2) instead of O(k.n).
+	 * 
+	 * @return The value of the QBF.
+	 */
+	protected double evaluateSelectedQBF() {
+
+		return A.evaluate(variables, selected, cardinality);
 
 	}
 
@@ -147,7 +293,7 @@ public class QBF implements Evaluator<Integer> {
 	 * @return Ihe variation of the objective function resulting from the
 	 *         insertion.
 	 */
-	public Double evaluateInsertionQBF(int i) {
+	public double evaluateInsertionQBF(int i) {
 
 		if (variables[i] == 1)
 			return 0.0;
@@ -178,7 +324,7 @@ public class QBF implements Evaluator<Integer> {
 	 * @return The variation of the objective function resulting from the
 	 *         removal.
 	 */
-	public Double evaluateRemovalQBF(int i) {
+	public double evaluateRemovalQBF(int i) {
 
 		if (variables[i] == 0)
 			return 0.0;
@@ -214,9 +360,9 @@ public class QBF implements Evaluator<Integer> {
 	 * @return The variation of the objective function resulting from the
 	 *         exchange.
 	 */
-	public Double evaluateExchangeQBF(int in, int out) {
+	public double evaluateExchangeQBF(int in, int out) {
 
-		Double sum = 0.0;
+		double sum = 0.0;
 
 		if (in == out)
 			return 0.0;
@@ -227,7 +373,7 @@ public class QBF implements Evaluator<Integer> {
 
 		sum += evaluateContributionQBF(in);
 		sum -= evaluateContributionQBF(out);
-		sum -= (A[in][out] + A[out][in]);
+		sum -= A.symmetric(in, out);
 
 		return sum;
 	}
@@ -246,23 +392,16 @@ public class QBF implements Evaluator<Integer> {
 	 * @return the variation of the objective function resulting from the
 	 *         insertion.
 	 */
-	private Double evaluateContributionQBF(int i) {
-
-		Double sum = 0.0;
-
-		for (int j = 0; j < size; j++) {
-			if (i != j)
-				sum += variables[j] * (A[i][j] + A[j][i]);
-		}
-		sum += A[i][i];
+	private double evaluateContributionQBF(int i) {
 
-		return sum;
+		return A.contribution(i, variables);
 	}
 
 	/**
 	 * Responsible for setting the QBF function parameters by reading the
 	 * necessary input from an external file. this method reads the domain's
-	 * dimension and matrix {@link #A}.
+	 * dimension and matrix {@link #A}, either from the text layout or from a
+	 * binary instance written by {@link QBFInstanceFile}.
 	 * 
 	 * @param filename
 	 *            Name of the file containing the input for setting the black
@@ -273,23 +412,49 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	protected Integer readInput(String filename) throws IOException {
 
-		Reader fileInst = new BufferedReader(new FileReader(filename));
-		StreamTokenizer stok = new StreamTokenizer(fileInst);
+		if (QBFInstanceFile.isBinary(filename)) {
+			try (QBFInstanceFile instance = new QBFInstanceFile(filename)) {
+				A = instance.readMatrix();
+				return instance.size;
+			}
+		}
+
+		try (Reader fileInst = new BufferedReader(new FileReader(filename))) {
+			StreamTokenizer stok = new StreamTokenizer(fileInst);
+
+			stok.nextToken();
+			Integer _size = (int) stok.nval;
+			A = readMatrix(stok, _size);
 
-		stok.nextToken();
-		Integer _size = (int) stok.nval;
-		A = new Double[_size][_size];
+			return _size;
+		}
+
+	}
+
+	/**
+	 * Reads the upper triangle of matrix {@link #A}, row by row, into a
+	 * {@link QBFMatrix}, which is sparse or dense according to the density of
+	 * the coefficients (see {@link QBFMatrix.Builder}).
+	 * 
+	 * @param stok
+	 *            The tokenizer positioned right before the first coefficient.
+	 * @param _size
+	 *            The dimension of the matrix.
+	 * @return The matrix read.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	protected QBFMatrix readMatrix(StreamTokenizer stok, int _size) throws IOException {
 
+		QBFMatrix.Builder matrix = new QBFMatrix.Builder(_size);
 		for (int i = 0; i < _size; i++) {
 			for (int j = i; j < _size; j++) {
 				stok.nextToken();
-				A[i][j] = stok.nval;
-				if (j>i)
-					A[j][i] = 0.0;
+				matrix.add(i, j, stok.nval);
 			}
 		}
 
-		return _size;
+		return matrix.build();
 
 	}
 
@@ -299,8 +464,8 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
-		Double[] _variables = new Double[size];
+	protected double[] allocateVariables() {
+		double[] _variables = new double[size];
 		return _variables;
 	}
 
@@ -309,6 +474,7 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	public void resetVariables() {
 		Arrays.fill(variables, 0.0);
+		cardinality = 0;
 	}
 
 	/**
@@ -318,7 +484,7 @@ public class QBF implements Evaluator<Integer> {
 
 		for (int i = 0; i < size; i++) {
 			for (int j = i; j < size; j++) {
-				System.out.print(A[i][j] + " ");
+				System.out.print(A.get(i, j) + " ");
 			}
 			System.out.println();
 		}
@@ -0,0 +1,470 @@
+package problems.qbf;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A QBF or QBF-SC instance in binary form, which is loaded in a fraction of the
+ * time taken to parse the text layouts of {@code instances/qbf} and
+ * {@code instances/qbf-sc}. All values are little-endian:
+ *
+ * <pre>
+ * int    magic ("QBFB")
+ * int    version
+ * int    n, the dimension of the QBF
+ * int    number of sets: n for a QBF-SC instance, 0 for a QBF one
+ * long   number of nonzero coefficients
+ * int[]  size of each set
+ * int[]  elements of each set, 0-indexed, one set after the other
+ * double[n(n+1)/2] the upper triangle of A, row by row
+ * </pre>
+ *
+ * The file is read through a {@link FileChannel}, mapping it in windows of at
+ * most {@link #MAX_WINDOW} bytes, straight into primitive arrays, or, for a
+ * dense matrix too large for the heap, into a {@link MappedQBFMatrix}. Running
+ * this class converts text instances, e.g. {@code java
+ * problems.qbf.QBFInstanceFile qbf-sc instances/qbf-sc}.
+ */
+public class QBFInstanceFile implements Closeable {
+
+	/**
+	 * the first four bytes of a binary instance, "QBFB" in ASCII
+	 */
+	public static final int MAGIC = 0x42464251;
+
+	public static final int VERSION = 1;
+
+	/**
+	 * the extension given to converted instances
+	 */
+	public static final String EXTENSION = ".qbfb";
+
+	/**
+	 * the size of the header, in bytes
+	 */
+	private static final int HEADER_BYTES = 24;
+
+	/**
+	 * the largest region of the file mapped at once
+	 */
+	static final long MAX_WINDOW = 1L << 30;
+
+	/**
+	 * the largest fraction of the maximum heap size taken by a dense matrix
+	 * loaded on the heap; denser matrices are mapped off-heap instead
+	 */
+	public static final double HEAP_FRACTION = 0.25;
+
+	private final String filename;
+
+	private final FileChannel channel;
+
+	/**
+	 * the dimension of the QBF
+	 */
+	public final int size;
+
+	/**
+	 * the number of nonzero coefficients in the upper triangle
+	 */
+	public final long nonzeros;
+
+	/**
+	 * the size of each set, empty for a QBF instance
+	 */
+	private final int[] setSizes;
+
+	/**
+	 * the position of the first set element and of the first coefficient
+	 */
+	private final long setsOffset, matrixOffset;
+
+	/**
+	 * Opens a binary instance and reads its header.
+	 *
+	 * @param filename
+	 *            The binary instance.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a binary instance.
+	 */
+	public QBFInstanceFile(String filename) throws IOException {
+
+		this.filename = filename;
+		channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(filename + " is not a binary QBF instance of version " + VERSION + ".");
+			}
+			size = header.getInt(8);
+			int sets = header.getInt(12);
+			nonzeros = header.getLong(16);
+
+			setSizes = new int[sets];
+			map(HEADER_BYTES, 4L * sets).asIntBuffer().get(setSizes);
+			long elements = 0;
+			for (int setSize : setSizes) {
+				elements += setSize;
+			}
+			setsOffset = HEADER_BYTES + 4L * sets;
+			matrixOffset = setsOffset + 4L * elements;
+
+			if (channel.size() != matrixOffset + 8L * triangleSize(size)) {
+				throw new IOException(filename + " is truncated.");
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Tells whether a file is a binary instance, by its first bytes.
+	 *
+	 * @param filename
+	 *            The instance.
+	 * @return true if it is a binary instance, false if it is a text one.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static boolean isBinary(String filename) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * @return Whether the instance has the sets of a QBF-SC.
+	 */
+	public boolean hasSets() {
+		return setSizes.length > 0;
+	}
+
+	/**
+	 * Reads the sets of a QBF-SC instance.
+	 *
+	 * @return The elements of each set, 0-indexed.
+	 * @throws IOException
+	 *             If the instance has no sets.
+	 */
+	public int[][] readSets() throws IOException {
+
+		if (!hasSets()) {
+			throw new IOException("The instance has no sets.");
+		}
+
+		IntBuffer elements = map(setsOffset, matrixOffset - setsOffset).asIntBuffer();
+		int[][] sets = new int[setSizes.length][];
+		for (int s = 0; s < sets.length; s++) {
+			sets[s] = new int[setSizes[s]];
+			elements.get(sets[s]);
+		}
+
+		return sets;
+	}
+
+	/**
+	 * Reads the coefficients into a {@link QBFMatrix}. A dense matrix whose
+	 * symmetric form would take more than {@link #HEAP_FRACTION} of the
+	 * maximum heap size, or that is too large for an array, is mapped
+	 * off-heap by a {@link MappedQBFMatrix}, as is any dense matrix when the
+	 * system property {@code qbf.mapped} is true. Otherwise the representation
+	 * is chosen by a {@link QBFMatrix.Builder}.
+	 *
+	 * @return The matrix A.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public QBFMatrix readMatrix() throws IOException {
+
+		long cells = (long) size * size;
+		boolean dense = nonzeros >= QBFMatrix.SPARSE_DENSITY_THRESHOLD * triangleSize(size);
+		if (dense && (Boolean.getBoolean("qbf.mapped") || cells > Integer.MAX_VALUE - 8
+				|| 8.0 * cells > HEAP_FRACTION * Runtime.getRuntime().maxMemory())) {
+			return MappedQBFMatrix.open(filename, this);
+		}
+
+		QBFMatrix.Builder matrix = new QBFMatrix.Builder(size);
+		double[] row = new double[size];
+		RowReader rows = new RowReader();
+		for (int i = 0; i < size; i++) {
+			rows.read(i, row);
+			for (int j = i; j < size; j++) {
+				matrix.add(i, j, row[j - i]);
+			}
+		}
+
+		return matrix.build();
+	}
+
+	/**
+	 * Reads the rows of the upper triangle in order, remapping the window of
+	 * the file whenever the next row falls outside of it.
+	 */
+	class RowReader {
+
+		private DoubleBuffer window;
+		private long windowStart, windowEnd;
+
+		/**
+		 * Reads row i of the upper triangle, i.e. a_ii ... a_i(n-1).
+		 *
+		 * @param i
+		 *            The row.
+		 * @param row
+		 *            Receives the n - i coefficients of the row.
+		 */
+		void read(int i, double[] row) throws IOException {
+
+			long start = matrixOffset + 8L * rowOffset(i);
+			long end = start + 8L * (size - i);
+			if (window == null || start < windowStart || end > windowEnd) {
+				windowStart = start;
+				windowEnd = Math.min(matrixOffset + 8L * triangleSize(size), start + Math.max(MAX_WINDOW, end - start));
+				window = map(windowStart, windowEnd - windowStart).asDoubleBuffer();
+			}
+			window.get((int) ((start - windowStart) / 8), row, 0, size - i);
+		}
+
+	}
+
+	/**
+	 * Reads consecutive coefficients of a row of the upper triangle, with a
+	 * positional read that leaves the mapped windows alone.
+	 *
+	 * @param i
+	 *            The row.
+	 * @param j
+	 *            The column of the first coefficient, not smaller than i.
+	 * @param target
+	 *            Receives a_ij ... a_i(j+length-1).
+	 * @param offset
+	 *            The position of a_ij in the target.
+	 * @param length
+	 *            The number of coefficients, at most the capacity of the
+	 *            buffer divided by 8.
+	 * @param buffer
+	 *            A little-endian buffer used for the transfer.
+	 */
+	void readCoefficients(int i, int j, double[] target, int offset, int length, ByteBuffer buffer) throws IOException {
+
+		long position = matrixOffset + 8L * (rowOffset(i) + j - i);
+		buffer.clear().limit(8 * length);
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+				throw new IOException(filename + " is truncated.");
+		}
+		buffer.flip();
+		buffer.asDoubleBuffer().get(target, offset, length);
+	}
+
+	/**
+	 * @return The position of row i within the packed upper triangle.
+	 */
+	static long rowOffset(int i, int size) {
+		return (long) i * size - (long) i * (i - 1) / 2;
+	}
+
+	private long rowOffset(int i) {
+		return rowOffset(i, size);
+	}
+
+	/**
+	 * @return The number of coefficients in the upper triangle.
+	 */
+	static long triangleSize(int size) {
+		return (long) size * (size + 1) / 2;
+	}
+
+	private ByteBuffer map(long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Converts a text instance into a binary one, streaming the coefficients
+	 * without holding the matrix in memory.
+	 *
+	 * @param textFile
+	 *            The text instance.
+	 * @param binaryFile
+	 *            The binary instance being written.
+	 * @param withSets
+	 *            true for the QBF-SC layout (the dimension, the set sizes, the
+	 *            1-indexed elements of each set and the upper triangle), false
+	 *            for the QBF one (the dimension and the upper triangle).
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static void convert(String textFile, String binaryFile, boolean withSets) throws IOException {
+
+		try (Reader fileInst = new BufferedReader(new FileReader(textFile))) {
+
+			StreamTokenizer stok = new StreamTokenizer(fileInst);
+			stok.nextToken();
+			int size = (int) stok.nval;
+
+			try (Writer out = new Writer(binaryFile, size, withSets)) {
+				int sets = withSets ? size : 0;
+				int[] setSizes = new int[sets];
+				for (int s = 0; s < sets; s++) {
+					stok.nextToken();
+					setSizes[s] = (int) stok.nval;
+					out.putSetSize(setSizes[s]);
+				}
+				for (int s = 0; s < sets; s++) {
+					for (int e = 0; e < setSizes[s]; e++) {
+						stok.nextToken();
+						out.putElement((int) stok.nval - 1);
+					}
+				}
+
+				for (long k = triangleSize(size); k > 0; k--) {
+					if (stok.nextToken() != StreamTokenizer.TT_NUMBER) {
+						throw new IOException(textFile + " has fewer coefficients than expected.");
+					}
+					out.putCoefficient(stok.nval);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a binary instance sequentially: the set sizes, then the set
+	 * elements, then the upper triangle row by row. The header, which holds
+	 * the number of nonzero coefficients, is written when it is closed.
+	 */
+	static class Writer implements Closeable {
+
+		private final FileChannel out;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		private final int size, sets;
+		private long nonzeros = 0;
+
+		/**
+		 * @param filename
+		 *            The binary instance being written.
+		 * @param size
+		 *            The dimension of the QBF.
+		 * @param withSets
+		 *            Whether the instance has the n sets of a QBF-SC.
+		 */
+		Writer(String filename, int size, boolean withSets) throws IOException {
+			this.size = size;
+			this.sets = withSets ? size : 0;
+			out = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE);
+			out.position(HEADER_BYTES);
+		}
+
+		void putSetSize(int setSize) throws IOException {
+			flushIfFull(4);
+			buffer.putInt(setSize);
+		}
+
+		/**
+		 * @param element
+		 *            The next element of the current set, 0-indexed.
+		 */
+		void putElement(int element) throws IOException {
+			flushIfFull(4);
+			buffer.putInt(element);
+		}
+
+		/**
+		 * @param value
+		 *            The next coefficient of the upper triangle.
+		 */
+		void putCoefficient(double value) throws IOException {
+			if (value != 0.0)
+				nonzeros++;
+			flushIfFull(8);
+			buffer.putDouble(value);
+		}
+
+		/**
+		 * Writes the buffer out if it has less than a given number of bytes
+		 * left.
+		 */
+		private void flushIfFull(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				buffer.clear();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flushIfFull(buffer.capacity());
+				buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(sets).putLong(nonzeros);
+				buffer.flip();
+				out.write(buffer, 0);
+			} finally {
+				out.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Converts text instances into binary ones.
+	 *
+	 * @param args
+	 *            The layout of the instances ("qbf" or "qbf-sc"), a text
+	 *            instance or a directory of them, and optionally the directory
+	 *            of the binary instances (by default, the same one). Each
+	 *            binary instance is named after the text one, with extension
+	 *            {@link #EXTENSION}.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2 || !(args[0].equals("qbf") || args[0].equals("qbf-sc"))) {
+			System.err.println("Usage: QBFInstanceFile <qbf|qbf-sc> <text instance or directory> [output directory]");
+			System.exit(1);
+		}
+
+		boolean withSets = args[0].equals("qbf-sc");
+		File input = new File(args[1]);
+		File[] files = input.isDirectory() ? input.listFiles() : new File[] { input };
+		File outputDir = args.length > 2 ? new File(args[2]) : (input.isDirectory() ? input : input.getAbsoluteFile().getParentFile());
+
+		for (File file : files) {
+			if (!file.isFile() || file.getName().equals("README") || file.getName().endsWith(EXTENSION))
+				continue;
+			String name = file.getName().replaceFirst("\\.txt$", "");
+			Path binary = outputDir.toPath().resolve(name + EXTENSION);
+			long startTime = System.currentTimeMillis();
+			convert(file.getPath(), binary.toString(), withSets);
+			System.out.println(file + " -> " + binary + " (" + (System.currentTimeMillis() - startTime) + " ms)");
+		}
+	}
+
+}
@@ -0,0 +1,361 @@
+package problems.qbf;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import metaheuristics.ga.RandomStream;
+
+/**
+ * Generates random QBF and QBF-SC instances of any size, reproducibly from a
+ * seed, in the text layouts read by {@link QBF#readInput} and
+ * {@link QBF_SC_Inverse#readInput} or in the binary one of
+ * {@link QBFInstanceFile}. The instances are written as they are drawn, one
+ * row of coefficients at a time, so n = 50,000 needs no more memory than the
+ * sets of the set cover.
+ *
+ * The coefficients of the upper triangle are nonzero with probability
+ * {@link #density}, and then drawn uniformly from the integers in [-
+ * {@link #range}, {@link #range}], or from a normal distribution of standard
+ * deviation {@link #range} / 3 rounded and clipped to that interval. The n
+ * sets of a QBF-SC cover a universe of n elements, each element being in
+ * {@link #overlap} sets on average and in at least one, so that every
+ * instance is feasible.
+ *
+ * Run it with {@code java problems.qbf.QBFInstanceGenerator <qbf|qbf-sc> <n>
+ * <output> [-seed s] [-density d] [-range r] [-distribution uniform|normal]
+ * [-overlap k] [-binary]}.
+ */
+public class QBFInstanceGenerator {
+
+	public enum Distribution {
+		UNIFORM, NORMAL
+	}
+
+	/**
+	 * the dimension of the instances
+	 */
+	private final int size;
+
+	private final RandomStream rng;
+
+	/**
+	 * the probability of a coefficient being nonzero
+	 */
+	public double density = 1.0;
+
+	/**
+	 * the largest absolute value of a coefficient
+	 */
+	public int range = 10;
+
+	public Distribution distribution = Distribution.UNIFORM;
+
+	/**
+	 * the average number of sets containing an element
+	 */
+	public double overlap = 5.0;
+
+	/**
+	 * @param size
+	 *            The dimension of the instances.
+	 * @param seed
+	 *            The seed of the random numbers.
+	 */
+	public QBFInstanceGenerator(int size, long seed) {
+		this.size = size;
+		this.rng = new RandomStream(seed);
+	}
+
+	/**
+	 * Draws a coefficient.
+	 */
+	private double nextCoefficient() {
+
+		if (rng.nextDouble() >= density)
+			return 0.0;
+
+		if (distribution == Distribution.NORMAL) {
+			long value = Math.round(rng.nextGaussian() * range / 3.0);
+			return Math.max(-range, Math.min(range, value));
+		}
+
+		return rng.nextInt(2 * range + 1) - range;
+	}
+
+	/**
+	 * Draws the sets of a set cover of the elements 0 ... n - 1: each element
+	 * is put in floor(overlap) or ceil(overlap) distinct sets, at least one,
+	 * chosen at random.
+	 *
+	 * @return The elements of each set, in increasing order.
+	 */
+	public int[][] generateSets() {
+
+		int[] setSizes = new int[size];
+		int[][] chosen = new int[size][];
+		int[] candidates = new int[size];
+		for (int s = 0; s < size; s++) {
+			candidates[s] = s;
+		}
+
+		for (int e = 0; e < size; e++) {
+			int count = (int) overlap + (rng.nextDouble() < overlap - Math.floor(overlap) ? 1 : 0);
+			count = Math.max(1, Math.min(size, count));
+
+			/* a partial Fisher-Yates shuffle picks count distinct sets */
+			chosen[e] = new int[count];
+			for (int k = 0; k < count; k++) {
+				int pick = k + rng.nextInt(size - k);
+				int set = candidates[pick];
+				candidates[pick] = candidates[k];
+				candidates[k] = set;
+				chosen[e][k] = set;
+				setSizes[set]++;
+			}
+		}
+
+		int[][] sets = new int[size][];
+		for (int s = 0; s < size; s++) {
+			sets[s] = new int[setSizes[s]];
+			setSizes[s] = 0;
+		}
+		for (int e = 0; e < size; e++) {
+			for (int set : chosen[e]) {
+				sets[set][setSizes[set]++] = e;
+			}
+		}
+
+		return sets;
+	}
+
+	/**
+	 * Writes an instance.
+	 *
+	 * @param filename
+	 *            The instance being written.
+	 * @param withSets
+	 *            true for a QBF-SC instance, false for a QBF one.
+	 * @param binary
+	 *            true for the binary layout of {@link QBFInstanceFile}, false
+	 *            for the text one.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public void generate(String filename, boolean withSets, boolean binary) throws IOException {
+
+		int[][] sets = withSets ? generateSets() : new int[0][];
+
+		try (Output out = binary ? new BinaryOutput(filename, withSets) : new TextOutput(filename)) {
+			out.begin(size);
+			if (withSets) {
+				out.beginSets();
+				for (int[] set : sets) {
+					out.putSetSize(set.length);
+				}
+				for (int[] set : sets) {
+					out.beginSet();
+					for (int element : set) {
+						out.putElement(element);
+					}
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				out.beginRow();
+				for (int j = i; j < size; j++) {
+					out.putCoefficient(nextCoefficient());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Receives an instance in the order of the text layout.
+	 */
+	private interface Output extends Closeable {
+
+		void begin(int size) throws IOException;
+
+		default void beginSets() throws IOException {
+		}
+
+		void putSetSize(int setSize) throws IOException;
+
+		default void beginSet() throws IOException {
+		}
+
+		/**
+		 * @param element
+		 *            The next element of the current set, 0-indexed.
+		 */
+		void putElement(int element) throws IOException;
+
+		default void beginRow() throws IOException {
+		}
+
+		void putCoefficient(double value) throws IOException;
+
+	}
+
+	/**
+	 * Writes the text layout: the dimension, the set sizes, one line per set
+	 * with its 1-indexed elements, and one line per row of the triangle.
+	 */
+	private static class TextOutput implements Output {
+
+		private final BufferedWriter out;
+
+		/**
+		 * whether the next value starts a line
+		 */
+		private boolean lineStart = true;
+
+		TextOutput(String filename) throws IOException {
+			out = new BufferedWriter(new FileWriter(filename), 1 << 16);
+		}
+
+		private void put(String value) throws IOException {
+			if (!lineStart)
+				out.write(' ');
+			out.write(value);
+			lineStart = false;
+		}
+
+		private void newLine() throws IOException {
+			out.write('\n');
+			lineStart = true;
+		}
+
+		@Override
+		public void begin(int size) throws IOException {
+			put(Integer.toString(size));
+		}
+
+		@Override
+		public void beginSets() throws IOException {
+			newLine();
+		}
+
+		@Override
+		public void putSetSize(int setSize) throws IOException {
+			put(Integer.toString(setSize));
+		}
+
+		@Override
+		public void beginSet() throws IOException {
+			newLine();
+		}
+
+		@Override
+		public void putElement(int element) throws IOException {
+			put(Integer.toString(element + 1));
+		}
+
+		@Override
+		public void beginRow() throws IOException {
+			newLine();
+		}
+
+		@Override
+		public void putCoefficient(double value) throws IOException {
+			put(Long.toString((long) value));
+		}
+
+		@Override
+		public void close() throws IOException {
+			newLine();
+			out.close();
+		}
+
+	}
+
+	/**
+	 * Writes the binary layout through a {@link QBFInstanceFile.Writer}.
+	 */
+	private static class BinaryOutput implements Output {
+
+		private final String filename;
+		private final boolean withSets;
+		private QBFInstanceFile.Writer out;
+
+		BinaryOutput(String filename, boolean withSets) {
+			this.filename = filename;
+			this.withSets = withSets;
+		}
+
+		@Override
+		public void begin(int size) throws IOException {
+			out = new QBFInstanceFile.Writer(filename, size, withSets);
+		}
+
+		@Override
+		public void putSetSize(int setSize) throws IOException {
+			out.putSetSize(setSize);
+		}
+
+		@Override
+		public void putElement(int element) throws IOException {
+			out.putElement(element);
+		}
+
+		@Override
+		public void putCoefficient(double value) throws IOException {
+			out.putCoefficient(value);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 3 || !(args[0].equals("qbf") || args[0].equals("qbf-sc"))) {
+			System.err.println("Usage: QBFInstanceGenerator <qbf|qbf-sc> <n> <output> [-seed s] [-density d] [-range r]"
+					+ " [-distribution uniform|normal] [-overlap k] [-binary]");
+			System.exit(1);
+		}
+
+		long seed = 0;
+		for (int a = 3; a < args.length; a++) {
+			if (args[a].equals("-seed"))
+				seed = Long.parseLong(args[++a]);
+		}
+		QBFInstanceGenerator generator = new QBFInstanceGenerator(Integer.parseInt(args[1]), seed);
+		boolean binary = false;
+
+		for (int a = 3; a < args.length; a++) {
+			switch (args[a]) {
+			case "-seed":
+				a++;
+				break;
+			case "-density":
+				generator.density = Double.parseDouble(args[++a]);
+				break;
+			case "-range":
+				generator.range = Integer.parseInt(args[++a]);
+				break;
+			case "-distribution":
+				generator.distribution = Distribution.valueOf(args[++a].toUpperCase());
+				break;
+			case "-overlap":
+				generator.overlap = Double.parseDouble(args[++a]);
+				break;
+			case "-binary":
+				binary = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[a] + ".");
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		generator.generate(args[2], args[0].equals("qbf-sc"), binary);
+		System.out.println(args[2] + " (" + (System.currentTimeMillis() - startTime) + " ms)");
+	}
+
+}
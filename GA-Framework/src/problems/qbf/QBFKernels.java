@@ -0,0 +1,139 @@
+package problems.qbf;
+
+/**
+ * The multiply-accumulate sweeps over rows of coefficients on which the
+ * evaluation of a QBF is built. This class implements them with plain scalar
+ * loops; {@code problems.qbf.VectorizedQBFKernels} overrides them with SIMD
+ * instructions of the JDK Vector API. Since that API lives in the incubator
+ * module {@code jdk.incubator.vector}, the vectorized kernels live in the
+ * separate source root {@code src-vector}, only compiled with
+ * {@code javac --add-modules jdk.incubator.vector} (see {@code build.sh}), and
+ * are only loaded when the JVM is started with the same option.
+ * {@link #get()} picks them when they can be loaded and falls back to the
+ * scalar ones otherwise, or when the system property {@code qbf.scalar} is
+ * true.
+ *
+ * Vectorized sums are accumulated in a different order, so their results may
+ * differ from the scalar ones in the last bits for fractional coefficients.
+ */
+public class QBFKernels {
+
+	/**
+	 * the kernels used by the QBF matrices
+	 */
+	private static final QBFKernels INSTANCE = load();
+
+	/**
+	 * @return The fastest kernels available in this JVM.
+	 */
+	public static QBFKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Loads the vectorized kernels reflectively, so that this class neither
+	 * needs the incubator module to compile nor to run.
+	 */
+	private static QBFKernels load() {
+
+		if (!Boolean.getBoolean("qbf.scalar")) {
+			try {
+				return (QBFKernels) Class.forName("problems.qbf.VectorizedQBFKernels").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// the class was not compiled or the module is not available
+			}
+		}
+
+		return new QBFKernels();
+	}
+
+	/**
+	 * @return A short description of the kernels.
+	 */
+	public String name() {
+		return "scalar";
+	}
+
+	/**
+	 * Gives the dot product of two slices of the same length.
+	 *
+	 * @param a
+	 *            The array of the first slice.
+	 * @param aOffset
+	 *            The first position of the first slice.
+	 * @param b
+	 *            The array of the second slice.
+	 * @param bOffset
+	 *            The first position of the second slice.
+	 * @param length
+	 *            The length of the slices.
+	 * @return \sum_k{a[aOffset + k] * b[bOffset + k]}.
+	 */
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		double sum = 0.0;
+		for (int k = 0; k < length; k++) {
+			sum += a[aOffset + k] * b[bOffset + k];
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Adds a multiple of a slice to another one, i.e. b[bOffset + k] += factor
+	 * * a[aOffset + k] for every k < length.
+	 *
+	 * @param factor
+	 *            The multiplier of the first slice.
+	 * @param a
+	 *            The array of the first slice.
+	 * @param aOffset
+	 *            The first position of the first slice.
+	 * @param b
+	 *            The array of the slice being updated.
+	 * @param bOffset
+	 *            The first position of the slice being updated.
+	 * @param length
+	 *            The length of the slices.
+	 */
+	public void axpy(double factor, double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		for (int k = 0; k < length; k++) {
+			b[bOffset + k] += factor * a[aOffset + k];
+		}
+	}
+
+	/**
+	 * Accumulates the dot products of one slice with the same slice of several
+	 * vectors stored as the rows of a matrix, e.g. a row of coefficients with
+	 * several candidate solutions. The slice of coefficients is read once for
+	 * all vectors.
+	 *
+	 * @param a
+	 *            The array of the shared slice.
+	 * @param aOffset
+	 *            The first position of the shared slice.
+	 * @param xs
+	 *            The vectors, row-major, {@code stride} positions apart.
+	 * @param rows
+	 *            The rows of the vectors taking part.
+	 * @param count
+	 *            The number of rows taking part.
+	 * @param stride
+	 *            The distance between two consecutive rows of {@code xs}.
+	 * @param xOffset
+	 *            The first position of the slice within each row.
+	 * @param length
+	 *            The length of the slices.
+	 * @param results
+	 *            The accumulators, indexed by row: results[r] is increased by
+	 *            the dot product of the shared slice with row r.
+	 */
+	public void dotBatch(double[] a, int aOffset, double[] xs, int[] rows, int count, int stride, int xOffset, int length, double[] results) {
+
+		for (int c = 0; c < count; c++) {
+			results[rows[c]] += dot(a, aOffset, xs, rows[c] * stride + xOffset, length);
+		}
+	}
+
+}
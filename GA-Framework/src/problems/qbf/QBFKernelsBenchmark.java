@@ -0,0 +1,132 @@
+package problems.qbf;
+
+import java.util.Random;
+
+/**
+ * Compares the scalar {@link QBFKernels} with the ones returned by
+ * {@link QBFKernels#get()} on a random dense matrix, for the three workloads
+ * of the QBF: full evaluations, contribution sweeps and batch evaluations of a
+ * row against several candidate vectors. Each workload is warmed up before
+ * being timed, and the best of several rounds is reported.
+ *
+ * Run it with {@code java --add-modules jdk.incubator.vector
+ * problems.qbf.QBFKernelsBenchmark [n] [rounds]} to measure the vectorized
+ * kernels; without the option both columns show the scalar ones.
+ */
+public class QBFKernelsBenchmark {
+
+	/**
+	 * the number of candidate vectors of a batch
+	 */
+	private static final int BATCH = 64;
+
+	private final int n;
+	private final double[] matrix;
+	private final double[] x;
+	private final double[] xs;
+	private final int[] rows;
+	private final double[] results;
+
+	/**
+	 * a sink for the results, so that the JIT cannot drop the computations
+	 */
+	private double sink;
+
+	public QBFKernelsBenchmark(int n) {
+		this.n = n;
+		Random random = new Random(0);
+		matrix = new double[n * n];
+		for (int k = 0; k < matrix.length; k++) {
+			matrix[k] = random.nextInt(201) - 100;
+		}
+		x = new double[n];
+		for (int j = 0; j < n; j++) {
+			x[j] = random.nextInt(2);
+		}
+		xs = new double[BATCH * n];
+		for (int k = 0; k < xs.length; k++) {
+			xs[k] = random.nextInt(2);
+		}
+		rows = new int[BATCH];
+		for (int r = 0; r < BATCH; r++) {
+			rows[r] = r;
+		}
+		results = new double[BATCH];
+	}
+
+	/**
+	 * One full evaluation: an upper half row sweep per variable set to 1.
+	 */
+	private void evaluate(QBFKernels kernels) {
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			if (x[i] != 0.0)
+				sum += kernels.dot(matrix, i * n + i, x, i, n - i);
+		}
+		sink += sum;
+	}
+
+	/**
+	 * The contributions of all variables: a full row sweep per variable.
+	 */
+	private void contributions(QBFKernels kernels) {
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			sum += kernels.dot(matrix, i * n, x, 0, n);
+		}
+		sink += sum;
+	}
+
+	/**
+	 * The contributions of all variables in {@link #BATCH} vectors at once.
+	 */
+	private void batch(QBFKernels kernels) {
+		for (int i = 0; i < n; i++) {
+			kernels.dotBatch(matrix, i * n, xs, rows, BATCH, n, 0, n, results);
+		}
+		sink += results[0];
+	}
+
+	/**
+	 * @return The best time of a workload among the rounds, in milliseconds.
+	 */
+	private double time(Runnable workload, int rounds) {
+
+		for (int r = 0; r < rounds; r++) {
+			workload.run(); // warm-up
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < rounds; r++) {
+			long start = System.nanoTime();
+			workload.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best / 1e6;
+	}
+
+	private void report(String workload, Runnable scalar, Runnable fastest, int rounds) {
+		double scalarTime = time(scalar, rounds);
+		double fastestTime = time(fastest, rounds);
+		System.out.printf("%-14s %12.3f %18.3f %9.2fx%n", workload, scalarTime, fastestTime, scalarTime / fastestTime);
+	}
+
+	public static void main(String[] args) {
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		QBFKernelsBenchmark benchmark = new QBFKernelsBenchmark(n);
+		QBFKernels scalar = new QBFKernels();
+		QBFKernels fastest = QBFKernels.get();
+
+		System.out.println("n = " + n + ", kernels = " + fastest.name() + ", best of " + rounds + " rounds (ms)");
+		System.out.printf("%-14s %12s %18s %10s%n", "workload", "scalar", fastest.name(), "speedup");
+		benchmark.report("evaluation", () -> benchmark.evaluate(scalar), () -> benchmark.evaluate(fastest), rounds);
+		benchmark.report("contributions", () -> benchmark.contributions(scalar), () -> benchmark.contributions(fastest), rounds);
+		benchmark.report("batch x" + BATCH, () -> benchmark.batch(scalar), () -> benchmark.batch(fastest), Math.max(1, rounds / 10));
+		System.out.println("(checksum " + benchmark.sink + ")");
+	}
+
+}
@@ -0,0 +1,228 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * The matrix A of coefficients of a QBF f(x) = x'.A.x, as read from an
+ * instance: an upper triangular matrix, the lower triangle being zero. Since
+ * x'.A.x only depends on A + A', implementations are free to store the
+ * coefficients in whatever layout evaluates the QBF fastest, as long as they
+ * answer the queries below with primitive doubles.
+ *
+ * Matrices are immutable once built, so they may be shared by any number of
+ * {@link QBF} forks running on different threads.
+ */
+public abstract class QBFMatrix {
+
+	/**
+	 * the fraction of nonzero coefficients in the upper triangle below which a
+	 * {@link Builder} stores the matrix in sparse form
+	 */
+	public static final double SPARSE_DENSITY_THRESHOLD = 0.1;
+
+	/**
+	 * the dimension of the matrix
+	 */
+	protected final int size;
+
+	protected QBFMatrix(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * @return The dimension of the matrix.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gives a coefficient as read from the instance.
+	 *
+	 * @param i
+	 *            The row of the coefficient.
+	 * @param j
+	 *            The column of the coefficient.
+	 * @return a_ij, which is zero if i > j.
+	 */
+	public abstract double get(int i, int j);
+
+	/**
+	 * Gives the coefficient of the product x_i.x_j in the QBF, i.e. a_ij + a_ji
+	 * if i != j, or a_ii otherwise.
+	 *
+	 * @param i
+	 *            The index of a variable.
+	 * @param j
+	 *            The index of a variable.
+	 * @return The symmetric coefficient.
+	 */
+	public abstract double symmetric(int i, int j);
+
+	/**
+	 * Evaluates the QBF x'.A.x on a vector of binary variables.
+	 *
+	 * @param x
+	 *            The variables, each one 0 or 1.
+	 * @return The value of the QBF.
+	 */
+	public abstract double evaluate(double[] x);
+
+	/**
+	 * Evaluates the QBF x'.A.x on a vector of binary variables whose indices
+	 * set to 1 are also given as a list, so that the evaluation may only visit
+	 * the coefficients of the selected variables. Implementations choose
+	 * between that and {@link #evaluate(double[])} by the number of selected
+	 * variables.
+	 *
+	 * @param x
+	 *            The variables, each one 0 or 1.
+	 * @param selected
+	 *            The distinct indices of the variables set to 1, in any order.
+	 * @param count
+	 *            The number of selected variables.
+	 * @return The value of the QBF.
+	 */
+	public abstract double evaluate(double[] x, int[] selected, int count);
+
+	/**
+	 * Evaluates the QBF on several vectors of binary variables at once, i.e.
+	 * the diagonal of X.A.X' for the matrix X whose rows are the vectors.
+	 *
+	 * @param xs
+	 *            The vectors, as the rows of a row-major matrix of
+	 *            {@link #size} columns, each variable 0 or 1.
+	 * @param count
+	 *            The number of vectors.
+	 * @param rows
+	 *            A workspace of at least count positions, so that batches are
+	 *            evaluated without allocating.
+	 * @param results
+	 *            Receives the value of the QBF on each vector.
+	 */
+	public abstract void evaluateBatch(double[] xs, int count, int[] rows, double[] results);
+
+	/**
+	 * Gives the variation of the QBF when variable i goes from 0 to 1 while the
+	 * other variables keep their values, i.e. a_ii + \sum_{j != i}{(a_ij +
+	 * a_ji) * x_j}, disregarding the current value of x_i.
+	 *
+	 * @param i
+	 *            The index of the variable.
+	 * @param x
+	 *            The variables, each one 0 or 1.
+	 * @return The contribution of variable i.
+	 */
+	public abstract double contribution(int i, double[] x);
+
+	/**
+	 * Adds a multiple of the off-diagonal part of row i of A + A' to a vector,
+	 * i.e. target[j] += factor * (a_ij + a_ji) for every j != i. This is how
+	 * the contributions of all variables change when variable i is flipped.
+	 *
+	 * @param i
+	 *            The row being added.
+	 * @param factor
+	 *            The multiplier of the row.
+	 * @param target
+	 *            The vector receiving the row.
+	 */
+	public abstract void addSymmetricRow(int i, double factor, double[] target);
+
+	/**
+	 * @return The sum of the absolute values of the coefficients.
+	 */
+	public abstract double absoluteSum();
+
+	/**
+	 * Collects the nonzero coefficients of the upper triangle of a matrix as
+	 * they are read, row by row, and then picks its representation by its
+	 * density: a {@link SparseQBFMatrix} below
+	 * {@link #SPARSE_DENSITY_THRESHOLD}, or when the matrix is too large to be
+	 * dense, and a {@link DenseQBFMatrix} otherwise. Zeros are never stored,
+	 * so a sparse matrix is loaded in O(nnz) memory.
+	 */
+	public static class Builder {
+
+		private final int size;
+
+		/**
+		 * the entries of row i are at [rowStart[i], rowStart[i + 1])
+		 */
+		private final int[] rowStart;
+
+		private int[] columns = new int[16];
+
+		private double[] values = new double[16];
+
+		/**
+		 * the number of entries, and the row and column of the last one
+		 */
+		private int count = 0, row = 0, column = -1;
+
+		/**
+		 * @param size
+		 *            The dimension of the matrix.
+		 */
+		public Builder(int size) {
+			this.size = size;
+			this.rowStart = new int[size + 1];
+		}
+
+		/**
+		 * Adds a coefficient of the upper triangle. Coefficients must be added
+		 * by increasing row and, within a row, by increasing column.
+		 *
+		 * @param i
+		 *            The row of the coefficient.
+		 * @param j
+		 *            The column of the coefficient, not smaller than i.
+		 * @param value
+		 *            a_ij.
+		 */
+		public void add(int i, int j, double value) {
+
+			if (i < row || j < i || j >= size || (i == row && j <= column)) {
+				throw new IllegalArgumentException("Coefficient (" + i + ", " + j + ") is out of order.");
+			}
+			while (row < i) {
+				rowStart[++row] = count;
+			}
+			column = j;
+			if (value == 0.0)
+				return;
+
+			if (count == columns.length) {
+				columns = Arrays.copyOf(columns, 2 * count);
+				values = Arrays.copyOf(values, 2 * count);
+			}
+			columns[count] = j;
+			values[count++] = value;
+		}
+
+		/**
+		 * @return The matrix holding the coefficients added so far.
+		 */
+		public QBFMatrix build() {
+
+			while (row < size) {
+				rowStart[++row] = count;
+			}
+
+			double density = count / (size * (size + 1.0) / 2.0);
+			if (density < SPARSE_DENSITY_THRESHOLD || (long) size * size > Integer.MAX_VALUE - 8) {
+				return new SparseQBFMatrix(size, rowStart, columns, values);
+			}
+
+			DenseQBFMatrix matrix = new DenseQBFMatrix(size);
+			for (int i = 0; i < size; i++) {
+				for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+					matrix.set(i, columns[k], values[k]);
+				}
+			}
+			return matrix;
+		}
+
+	}
+
+}
@@ -24,20 +24,76 @@ public class QBF_Inverse extends QBF {
 		super(filename);
 	}
 
+	/**
+	 * Constructor for the inverse of a QBF whose coefficients are already
+	 * built.
+	 * 
+	 * @param A
+	 *            The matrix of coefficients.
+	 */
+	public QBF_Inverse(QBFMatrix A) {
+		super(A);
+	}
+
+	/**
+	 * Constructor used by {@link #fork()}.
+	 * 
+	 * @param other
+	 *            The QBF_Inverse whose coefficients are shared.
+	 */
+	protected QBF_Inverse(QBF_Inverse other) {
+		super(other);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#fork()
+	 */
+	@Override
+	public QBF_Inverse fork() {
+		return new QBF_Inverse(this);
+	}
+
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#createIncrementalSolution()
+	 */
+	@Override
+	public IncrementalQBFSolution createIncrementalSolution() {
+		return new IncrementalQBFSolution(A, -1.0);
+	}
 
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluate()
 	 */
 	@Override
-	public Double evaluateQBF() {
+	public double evaluateQBF() {
 		return -super.evaluateQBF();
 	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateBatch(long[][], int, double[])
+	 */
+	@Override
+	public void evaluateBatch(long[][] bits, int count, double[] costs) {
+		super.evaluateBatch(bits, count, costs);
+		for (int r = 0; r < count; r++) {
+			costs[r] = -costs[r];
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateSelectedQBF()
+	 */
+	@Override
+	protected double evaluateSelectedQBF() {
+		return -super.evaluateSelectedQBF();
+	}
 	
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluateInsertion(int)
 	 */
 	@Override
-	public Double evaluateInsertionQBF(int i) {	
+	public double evaluateInsertionQBF(int i) {	
 		return -super.evaluateInsertionQBF(i);
 	}
 	
@@ -45,7 +101,7 @@ public class QBF_Inverse extends QBF {
 	 * @see problems.qbf.QBF#evaluateRemoval(int)
 	 */
 	@Override
-	public Double evaluateRemovalQBF(int i) {
+	public double evaluateRemovalQBF(int i) {
 		return -super.evaluateRemovalQBF(i);
 	}
 	
@@ -53,7 +109,7 @@ public class QBF_Inverse extends QBF {
 	 * @see problems.qbf.QBF#evaluateExchange(int, int)
 	 */
 	@Override
-	public Double evaluateExchangeQBF(int in, int out) {
+	public double evaluateExchangeQBF(int in, int out) {
 		return -super.evaluateExchangeQBF(in,out);
 	}
 
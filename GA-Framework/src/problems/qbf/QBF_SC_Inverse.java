@@ -5,14 +5,53 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StreamTokenizer;
-import java.util.HashSet;
+import java.util.Arrays;
 
 import solutions.Solution;
 
 public class QBF_SC_Inverse extends QBF_Inverse {
-    protected HashSet<Integer>[] sets;
+
+    /**
+     * the elements of each set, 0-indexed, sorted and distinct
+     */
+    protected int[][] sets;
+
+    /**
+     * the sets containing each element, i.e. the inverted index of
+     * {@link #sets}
+     */
+    protected int[][] setsOfElement;
+
+    /**
+     * the elements of each set as a bitset, for the sets having at least one
+     * element per 64 of the universe (null for the others, whose elements are
+     * set one at a time)
+     */
+    protected long[][] setBits;
+
+    /**
+     * the number of elements to be covered, 0 ... elementCount - 1
+     */
+    protected int elementCount;
+
     protected double coefficientsMagnitude;
 
+    /**
+     * the number of selected sets containing each element, maintained by
+     * {@link #addToCover} and {@link #removeFromCover}
+     */
+    protected final int[] coverage;
+
+    /**
+     * the number of elements whose {@link #coverage} is zero
+     */
+    protected int uncovered;
+
+    /**
+     * workspace of {@link #countUncoveredElements()}
+     */
+    protected final long[] coveredBits;
+
 	/**
 	 * Constructor for the QBF_SC_Inverse class.
 	 * 
@@ -25,12 +64,60 @@ public class QBF_SC_Inverse extends QBF_Inverse {
 	public QBF_SC_Inverse(String filename) throws IOException {
 		super(filename);
         coefficientsMagnitude = evaluateCoefficientsMagnitude();
+        coverage = new int[elementCount];
+        coveredBits = new long[(elementCount + 63) >>> 6];
+        clearCover();
+	}
+
+	/**
+	 * Constructor for a QBF-SC whose coefficients and sets are already built,
+	 * e.g. by a {@link QBF_SC_Reduction}.
+	 * 
+	 * @param A
+	 *            The matrix of coefficients.
+	 * @param sets
+	 *            The elements of each set, 0-indexed, one set per variable.
+	 * @param elementCount
+	 *            The number of elements to be covered.
+	 */
+	public QBF_SC_Inverse(QBFMatrix A, int[][] sets, int elementCount) {
+		super(A);
+		indexSets(sets, elementCount);
+		coefficientsMagnitude = evaluateCoefficientsMagnitude();
+		coverage = new int[this.elementCount];
+		coveredBits = new long[(this.elementCount + 63) >>> 6];
+		clearCover();
+	}
+
+	/**
+	 * Constructor used by {@link #fork()}, sharing the coefficients and sets
+	 * of another QBF_SC_Inverse, while allocating its own coverage counters.
+	 * 
+	 * @param other
+	 *            The QBF_SC_Inverse whose data is shared.
+	 */
+	protected QBF_SC_Inverse(QBF_SC_Inverse other) {
+		super(other);
+		sets = other.sets;
+		setsOfElement = other.setsOfElement;
+		setBits = other.setBits;
+		elementCount = other.elementCount;
+		coefficientsMagnitude = other.coefficientsMagnitude;
+		coverage = new int[elementCount];
+		coveredBits = new long[(elementCount + 63) >>> 6];
+		clearCover();
+	}
+
+	@Override
+	public QBF_SC_Inverse fork() {
+		return new QBF_SC_Inverse(this);
 	}
 
     /**
 	 * Responsible for setting the QBF function parameters by reading the
 	 * necessary input from an external file. this method reads the domain's
-	 * dimension, matrix {@link #A}, and sets for the set-cover.
+	 * dimension, matrix {@link #A}, and sets for the set-cover, either from the
+	 * text layout or from a binary instance written by {@link QBFInstanceFile}.
 	 * 
 	 * @param filename
 	 *            Name of the file containing the input for setting the black
@@ -39,60 +126,109 @@ public class QBF_SC_Inverse extends QBF_Inverse {
 	 * @throws IOException
 	 *             Necessary for I/O operations.
 	 */
-	@SuppressWarnings("unchecked")
     protected Integer readInput(String filename) throws IOException {
 
-		Reader fileInst = new BufferedReader(new FileReader(filename));
-		StreamTokenizer stok = new StreamTokenizer(fileInst);
+		if (QBFInstanceFile.isBinary(filename)) {
+			try (QBFInstanceFile instance = new QBFInstanceFile(filename)) {
+				indexSets(instance.readSets(), instance.size);
+				A = instance.readMatrix();
+				return instance.size;
+			}
+		}
 
-        // First line has the number of variables N
-		stok.nextToken();
-		Integer _size = (int) stok.nval;
+		try (Reader fileInst = new BufferedReader(new FileReader(filename))) {
+			StreamTokenizer stok = new StreamTokenizer(fileInst);
 
-        // There are also N sets that will be used for the set-cover restrictions
-		sets = (HashSet<Integer>[]) new HashSet[_size];
-        Integer[] setSizes = new Integer[_size];
+			// First line has the number of variables N
+			stok.nextToken();
+			Integer _size = (int) stok.nval;
 
-        // The next line has the sizes of each set
-        for (int i = 0; i < _size; i++) {
-            sets[i] = new HashSet<Integer>();
-            stok.nextToken();
-            setSizes[i] = (int) stok.nval;
-        }
+			// There are also N sets that will be used for the set-cover restrictions
+			int[][] elements = new int[_size][];
 
-        // And the next N lines each contain the elements of the sets
-        for (int i = 0; i < _size; i++) {
-            for (int j = 0; j < setSizes[i]; j++) {
-                stok.nextToken();
-                Integer elem = (int) stok.nval - 1; // Making it 0-index so we don't have to worry about it anywhere else
-                sets[i].add(elem);
-            }
-        }
-
-        // N x N is also the dimension of the matrix A
-		A = new Double[_size][_size];
-        // The next N lines are rows of the matrix A
-        // We assume a superior triangular matrix
-		for (int i = 0; i < _size; i++) {
-			for (int j = i; j < _size; j++) {
+			// The next line has the sizes of each set
+			for (int i = 0; i < _size; i++) {
 				stok.nextToken();
-				A[i][j] = stok.nval;
-				if (j>i)
-					A[j][i] = 0.0;
+				elements[i] = new int[(int) stok.nval];
 			}
-		}
 
-		return _size;
+			// And the next N lines each contain the elements of the sets
+			for (int i = 0; i < _size; i++) {
+				for (int j = 0; j < elements[i].length; j++) {
+					stok.nextToken();
+					elements[i][j] = (int) stok.nval - 1; // Making it 0-index so we don't have to worry about it anywhere else
+				}
+			}
+			indexSets(elements, _size);
+
+			// N x N is also the dimension of the matrix A
+			// The next N lines are rows of the matrix A
+			// We assume a superior triangular matrix
+			A = readMatrix(stok, _size);
+
+			return _size;
+		}
 	}
 
-    protected Double evaluateCoefficientsMagnitude() {
-        Double sum = 0.0;
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                sum += Math.abs(A[i][j]);
+    /**
+     * Stores the sets of the set cover, sorted and without repeated elements,
+     * and builds their inverted index and bitsets. The universe holds the
+     * elements 0 ... universe - 1, or more if a set has larger elements.
+     * 
+     * @param elements
+     *            The elements of each set, 0-indexed, in any order.
+     * @param universe
+     *            The number of elements to be covered, which is the dimension
+     *            of the domain in the instances.
+     */
+    protected void indexSets(int[][] elements, int universe) {
+
+        sets = new int[elements.length][];
+        elementCount = universe;
+        for (int i = 0; i < elements.length; i++) {
+            int[] set = elements[i].clone();
+            Arrays.sort(set);
+            int distinct = 0;
+            for (int k = 0; k < set.length; k++) {
+                if (k == 0 || set[k] != set[k - 1])
+                    set[distinct++] = set[k];
+            }
+            sets[i] = Arrays.copyOf(set, distinct);
+            if (distinct > 0)
+                elementCount = Math.max(elementCount, sets[i][distinct - 1] + 1);
+        }
+
+        int[] degree = new int[elementCount];
+        for (int[] set : sets) {
+            for (int elem : set) {
+                degree[elem]++;
             }
         }
-        return sum;
+        setsOfElement = new int[elementCount][];
+        for (int elem = 0; elem < elementCount; elem++) {
+            setsOfElement[elem] = new int[degree[elem]];
+            degree[elem] = 0;
+        }
+        for (int i = 0; i < sets.length; i++) {
+            for (int elem : sets[i]) {
+                setsOfElement[elem][degree[elem]++] = i;
+            }
+        }
+
+        int words = (elementCount + 63) >>> 6;
+        setBits = new long[sets.length][];
+        for (int i = 0; i < sets.length; i++) {
+            if (sets[i].length >= words) {
+                setBits[i] = new long[words];
+                for (int elem : sets[i]) {
+                    setBits[i][elem >>> 6] |= 1L << elem;
+                }
+            }
+        }
+    }
+
+    protected Double evaluateCoefficientsMagnitude() {
+        return A.absoluteSum();
     }
 
     /**
@@ -108,14 +244,154 @@ public class QBF_SC_Inverse extends QBF_Inverse {
         return coefficientsMagnitude;
     }
 
-    public Integer countUncoveredElements() {
-        HashSet<Integer> covered = new HashSet<Integer>();
+    /**
+     * Counts the elements not covered by the sets selected in
+     * {@link #variables}, as a word-wise OR of the bitsets of the selected
+     * sets, in O(k.E/64) for k selected sets and E elements.
+     * 
+     * @return The number of uncovered elements.
+     */
+    public int countUncoveredElements() {
+        Arrays.fill(coveredBits, 0L);
         for (int i = 0; i < size; i++) {
-            if (variables[i] >= 1.0) { // If the variable is selected
-                covered.addAll(sets[i]);
+            if (variables[i] < 1.0) // If the variable is not selected
+                continue;
+            long[] bits = setBits[i];
+            if (bits != null) {
+                for (int w = 0; w < bits.length; w++) {
+                    coveredBits[w] |= bits[w];
+                }
+            } else {
+                for (int elem : sets[i]) {
+                    coveredBits[elem >>> 6] |= 1L << elem;
+                }
             }
         }
-        return size - covered.size();
+
+        int covered = 0;
+        for (long word : coveredBits) {
+            covered += Long.bitCount(word);
+        }
+        return elementCount - covered;
+    }
+
+    /**
+     * Empties the incremental cover kept by {@link #coverage}, leaving all
+     * elements uncovered.
+     */
+    public void clearCover() {
+        Arrays.fill(coverage, 0);
+        uncovered = elementCount;
+    }
+
+    /**
+     * Adds a set to the incremental cover, in O(|set|).
+     * 
+     * @param set
+     *            The set, which must not be in the cover already.
+     */
+    public void addToCover(int set) {
+        for (int elem : sets[set]) {
+            if (coverage[elem]++ == 0)
+                uncovered--;
+        }
+    }
+
+    /**
+     * Removes a set from the incremental cover, in O(|set|).
+     * 
+     * @param set
+     *            The set, which must be in the cover.
+     */
+    public void removeFromCover(int set) {
+        for (int elem : sets[set]) {
+            if (--coverage[elem] == 0)
+                uncovered++;
+        }
+    }
+
+    /**
+     * Sets the incremental cover to the sets of a solution.
+     * 
+     * @param sol
+     *            The solution, as a list of the selected sets.
+     */
+    public void setCover(Solution<Integer> sol) {
+        clearCover();
+        for (Integer set : sol) {
+            addToCover(set);
+        }
+    }
+
+    /**
+     * @return The number of elements left uncovered by the incremental cover.
+     */
+    public int getUncoveredCount() {
+        return uncovered;
+    }
+
+    /**
+     * @return The number of sets of the incremental cover containing an
+     *         element.
+     */
+    public int getCoverage(int elem) {
+        return coverage[elem];
+    }
+
+    /**
+     * Gives the number of elements that adding a set to the incremental cover
+     * would cover, in O(|set|).
+     * 
+     * @param set
+     *            A set not in the cover.
+     * @return The number of elements covered by the set alone.
+     */
+    public int countNewlyCovered(int set) {
+        int count = 0;
+        for (int elem : sets[set]) {
+            if (coverage[elem] == 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gives the number of elements that removing a set from the incremental
+     * cover would uncover, in O(|set|).
+     * 
+     * @param set
+     *            A set in the cover.
+     * @return The number of elements covered by the set alone.
+     */
+    public int countOnlyCovered(int set) {
+        int count = 0;
+        for (int elem : sets[set]) {
+            if (coverage[elem] == 1)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The elements of a set, sorted; the array must not be changed.
+     */
+    public int[] getSet(int set) {
+        return sets[set];
+    }
+
+    /**
+     * @return The sets containing an element, sorted; the array must not be
+     *         changed.
+     */
+    public int[] getSetsOfElement(int elem) {
+        return setsOfElement[elem];
+    }
+
+    /**
+     * @return The number of elements to be covered.
+     */
+    public int getElementCount() {
+        return elementCount;
     }
 
     @Override
@@ -0,0 +1,365 @@
+package problems.qbf;
+
+import solutions.Solution;
+
+/**
+ * A preprocessing of a {@link QBF_SC_Inverse} that fixes variables whose
+ * optimal value can be told in advance, and builds the reduced problem over
+ * the remaining ones. With c_i the contribution of variable i (the variation
+ * of the QBF when x_i goes from 0 to 1), bounded over all completions of the
+ * current fixings by minContribution_i and maxContribution_i (the diagonal
+ * a_ii plus the negative, or positive, off-diagonal coefficients of the free
+ * variables plus those of the variables fixed to 1), the rules are:
+ *
+ * <ul>
+ * <li>a set is fixed to 1 if it is the only one left containing an uncovered
+ * element;</li>
+ * <li>a set is fixed to 1 if minContribution_i >= 0, since adding it never
+ * lowers the QBF nor breaks a cover;</li>
+ * <li>a set is fixed to 0 if maxContribution_i <= 0 and its elements are all
+ * covered by the sets fixed to 1, since removing it never lowers the QBF nor
+ * breaks a cover;</li>
+ * <li>a set i is fixed to 0 if maxContribution_i <= 0 and another set j, not
+ * fixed to 0, contains all its uncovered elements and has minContribution_j >=
+ * maxContribution_i, since exchanging i for j never lowers the QBF nor breaks
+ * a cover.</li>
+ * </ul>
+ *
+ * Each rule keeps an optimal solution among the solutions allowed by the
+ * fixings made so far, so they are applied until none fixes anything else.
+ *
+ * The reduced problem has a variable per free set, whose elements are its
+ * elements left uncovered by the sets fixed to 1, and the coefficients of
+ * those sets, with their interactions with the sets fixed to 1 folded into
+ * the diagonal. Its QBF differs from the original one by the constant value of
+ * the sets fixed to 1, which {@link #expand} adds back.
+ */
+public class QBF_SC_Reduction {
+
+	private static final byte FREE = 0, ZERO = 1, ONE = 2;
+
+	private final QBF_SC_Inverse original;
+
+	private final QBF_SC_Inverse reduced;
+
+	/**
+	 * the value of each variable: {@link #FREE}, {@link #ZERO} or {@link #ONE}
+	 */
+	private final byte[] status;
+
+	/**
+	 * the original index of each variable of the reduced problem
+	 */
+	private final int[] freeVariables;
+
+	/**
+	 * the original indices of the variables fixed to 1
+	 */
+	private final int[] fixedToOne;
+
+	private final int fixedToZero;
+
+	/**
+	 * the cost of a solution of the original problem minus the cost of the
+	 * corresponding solution of the reduced one
+	 */
+	private final double offset;
+
+	private final double[] minContribution, maxContribution;
+
+	/**
+	 * whether each element is covered by a set fixed to 1
+	 */
+	private final boolean[] covered;
+
+	/**
+	 * the number of sets not fixed to 0 containing each element
+	 */
+	private final int[] candidates;
+
+	/**
+	 * Preprocesses a QBF-SC.
+	 *
+	 * @param original
+	 *            The problem being reduced.
+	 */
+	public QBF_SC_Reduction(QBF_SC_Inverse original) {
+
+		this.original = original;
+		QBFMatrix A = original.A;
+		int n = original.getDomainSize();
+		int elements = original.getElementCount();
+
+		status = new byte[n];
+		covered = new boolean[elements];
+		candidates = new int[elements];
+		for (int elem = 0; elem < elements; elem++) {
+			candidates[elem] = original.getSetsOfElement(elem).length;
+		}
+
+		minContribution = new double[n];
+		maxContribution = new double[n];
+		for (int i = 0; i < n; i++) {
+			double min = A.symmetric(i, i), max = min;
+			for (int j = 0; j < n; j++) {
+				if (j == i)
+					continue;
+				double coefficient = A.symmetric(i, j);
+				min += Math.min(0.0, coefficient);
+				max += Math.max(0.0, coefficient);
+			}
+			minContribution[i] = min;
+			maxContribution[i] = max;
+		}
+
+		int zeros = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			for (int elem = 0; elem < elements; elem++) {
+				if (!covered[elem] && candidates[elem] == 1) {
+					for (int set : original.getSetsOfElement(elem)) {
+						if (status[set] == FREE) {
+							fixToOne(set);
+							changed = true;
+						}
+					}
+				}
+			}
+
+			for (int i = 0; i < n; i++) {
+				if (status[i] != FREE)
+					continue;
+				if (minContribution[i] >= 0.0) {
+					fixToOne(i);
+					changed = true;
+				} else if (maxContribution[i] <= 0.0 && isDominated(i)) {
+					fixToZero(i);
+					zeros++;
+					changed = true;
+				}
+			}
+		}
+
+		int free = 0, ones = 0;
+		for (int i = 0; i < n; i++) {
+			if (status[i] == FREE)
+				free++;
+			else if (status[i] == ONE)
+				ones++;
+		}
+		freeVariables = new int[free];
+		fixedToOne = new int[ones];
+		free = 0;
+		ones = 0;
+		for (int i = 0; i < n; i++) {
+			if (status[i] == FREE)
+				freeVariables[free++] = i;
+			else if (status[i] == ONE)
+				fixedToOne[ones++] = i;
+		}
+		fixedToZero = zeros;
+
+		double[] x = new double[n];
+		for (int i : fixedToOne) {
+			x[i] = 1.0;
+		}
+		offset = -A.evaluate(x);
+
+		reduced = buildReduced();
+	}
+
+	/**
+	 * Tells whether a free set with maxContribution <= 0 may be fixed to 0:
+	 * either its elements are all covered, or another set not fixed to 0
+	 * contains all its uncovered elements and has a minContribution of at
+	 * least its maxContribution.
+	 */
+	private boolean isDominated(int i) {
+
+		int[] set = original.getSet(i);
+		int firstUncovered = -1;
+		for (int elem : set) {
+			if (!covered[elem]) {
+				firstUncovered = elem;
+				break;
+			}
+		}
+		if (firstUncovered < 0)
+			return true;
+
+		for (int j : original.getSetsOfElement(firstUncovered)) {
+			if (j != i && status[j] != ZERO && minContribution[j] >= maxContribution[i] && containsUncovered(original.getSet(j), set))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return Whether a sorted set contains the uncovered elements of another
+	 *         sorted set.
+	 */
+	private boolean containsUncovered(int[] container, int[] set) {
+		int k = 0;
+		for (int elem : set) {
+			if (covered[elem])
+				continue;
+			while (k < container.length && container[k] < elem)
+				k++;
+			if (k == container.length || container[k] != elem)
+				return false;
+		}
+		return true;
+	}
+
+	private void fixToOne(int set) {
+		status[set] = ONE;
+		for (int elem : original.getSet(set)) {
+			covered[elem] = true;
+		}
+		QBFMatrix A = original.A;
+		for (int i = 0; i < status.length; i++) {
+			if (status[i] == FREE) {
+				double coefficient = A.symmetric(i, set);
+				minContribution[i] += coefficient - Math.min(0.0, coefficient);
+				maxContribution[i] += coefficient - Math.max(0.0, coefficient);
+			}
+		}
+	}
+
+	private void fixToZero(int set) {
+		status[set] = ZERO;
+		for (int elem : original.getSet(set)) {
+			candidates[elem]--;
+		}
+		QBFMatrix A = original.A;
+		for (int i = 0; i < status.length; i++) {
+			if (status[i] == FREE) {
+				double coefficient = A.symmetric(i, set);
+				minContribution[i] -= Math.min(0.0, coefficient);
+				maxContribution[i] -= Math.max(0.0, coefficient);
+			}
+		}
+	}
+
+	/**
+	 * Builds the problem over the free variables and the uncovered elements.
+	 */
+	private QBF_SC_Inverse buildReduced() {
+
+		QBFMatrix A = original.A;
+		int k = freeVariables.length;
+
+		int[] elementIndex = new int[covered.length];
+		int elements = 0;
+		for (int elem = 0; elem < covered.length; elem++) {
+			elementIndex[elem] = covered[elem] ? -1 : elements++;
+		}
+
+		int[][] sets = new int[k][];
+		for (int p = 0; p < k; p++) {
+			int[] set = original.getSet(freeVariables[p]);
+			int count = 0;
+			for (int elem : set) {
+				if (!covered[elem])
+					count++;
+			}
+			sets[p] = new int[count];
+			count = 0;
+			for (int elem : set) {
+				if (!covered[elem])
+					sets[p][count++] = elementIndex[elem];
+			}
+		}
+
+		QBFMatrix.Builder matrix = new QBFMatrix.Builder(k);
+		for (int p = 0; p < k; p++) {
+			int i = freeVariables[p];
+			double diagonal = A.symmetric(i, i);
+			for (int j : fixedToOne) {
+				diagonal += A.symmetric(i, j);
+			}
+			matrix.add(p, p, diagonal);
+			for (int q = p + 1; q < k; q++) {
+				matrix.add(p, q, A.symmetric(i, freeVariables[q]));
+			}
+		}
+
+		return new QBF_SC_Inverse(matrix.build(), sets, elements);
+	}
+
+	/**
+	 * @return The problem being reduced.
+	 */
+	public QBF_SC_Inverse getOriginal() {
+		return original;
+	}
+
+	/**
+	 * @return The problem over the variables left free.
+	 */
+	public QBF_SC_Inverse getReduced() {
+		return reduced;
+	}
+
+	/**
+	 * @return The original index of a variable of the reduced problem.
+	 */
+	public int toOriginal(int reducedIndex) {
+		return freeVariables[reducedIndex];
+	}
+
+	/**
+	 * @return The number of variables fixed to 1.
+	 */
+	public int getFixedToOneCount() {
+		return fixedToOne.length;
+	}
+
+	/**
+	 * @return The number of variables fixed to 0.
+	 */
+	public int getFixedToZeroCount() {
+		return fixedToZero;
+	}
+
+	/**
+	 * @return The cost of a solution of the original problem minus the cost of
+	 *         the corresponding solution of the reduced one.
+	 */
+	public double getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Maps a solution of the reduced problem back to the original one.
+	 *
+	 * @param reducedSol
+	 *            A solution of the reduced problem, with its cost.
+	 * @return The original solution: the variables fixed to 1 and the
+	 *         original indices of the variables of the reduced solution, with
+	 *         the original cost.
+	 */
+	public Solution<Integer> expand(Solution<Integer> reducedSol) {
+
+		Solution<Integer> sol = new Solution<Integer>();
+		for (int i : fixedToOne) {
+			sol.add(i);
+		}
+		for (Integer p : reducedSol) {
+			sol.add(freeVariables[p]);
+		}
+		sol.cost = reducedSol.cost + offset;
+
+		return sol;
+	}
+
+	@Override
+	public String toString() {
+		return "QBF_SC_Reduction: n=[" + status.length + "], free=[" + freeVariables.length + "], fixed to 1=["
+				+ fixedToOne.length + "], fixed to 0=[" + fixedToZero + "], offset=[" + offset + "]";
+	}
+
+}
@@ -0,0 +1,199 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * A {@link QBFMatrix} stored in compressed sparse row (CSR) form: the diagonal
+ * of A in an array of its own, and the nonzero off-diagonal coefficients of
+ * A + A' as the adjacency lists of the variables, sorted by column. A full
+ * evaluation costs O(nnz) and a contribution query O(degree), so it suits
+ * matrices that are mostly zeros (see {@link QBFMatrix.Builder}).
+ */
+public class SparseQBFMatrix extends QBFMatrix {
+
+	/**
+	 * the coefficients a_ii
+	 */
+	private final double[] diagonal;
+
+	/**
+	 * the adjacency of variable i is at [rowStart[i], rowStart[i + 1]) in
+	 * {@link #columns} and {@link #values}
+	 */
+	private final int[] rowStart;
+
+	/**
+	 * the first position of the adjacency of variable i whose column is
+	 * greater than i
+	 */
+	private final int[] upperStart;
+
+	private final int[] columns;
+
+	private final double[] values;
+
+	/**
+	 * Builds the matrix from the nonzero coefficients of the upper triangle of
+	 * A, given row by row in CSR form.
+	 *
+	 * @param size
+	 *            The dimension of the matrix.
+	 * @param upperRowStart
+	 *            The entries of row i are at [upperRowStart[i],
+	 *            upperRowStart[i + 1]).
+	 * @param upperColumns
+	 *            The columns of the entries, not smaller than their rows and
+	 *            increasing within each row.
+	 * @param upperValues
+	 *            The coefficients of the entries.
+	 */
+	SparseQBFMatrix(int size, int[] upperRowStart, int[] upperColumns, double[] upperValues) {
+
+		super(size);
+		diagonal = new double[size];
+
+		/* each off-diagonal coefficient appears in the adjacency of both its variables */
+		int[] degree = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int k = upperRowStart[i]; k < upperRowStart[i + 1]; k++) {
+				int j = upperColumns[k];
+				if (j == i) {
+					diagonal[i] = upperValues[k];
+				} else {
+					degree[i]++;
+					degree[j]++;
+				}
+			}
+		}
+
+		rowStart = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			rowStart[i + 1] = rowStart[i] + degree[i];
+		}
+		columns = new int[rowStart[size]];
+		values = new double[rowStart[size]];
+		upperStart = new int[size];
+
+		/*
+		 * row i receives the entries of the rows above it, by increasing row,
+		 * before its own ones, so every adjacency ends up sorted by column
+		 */
+		int[] next = Arrays.copyOf(rowStart, size);
+		for (int i = 0; i < size; i++) {
+			upperStart[i] = next[i];
+			for (int k = upperRowStart[i]; k < upperRowStart[i + 1]; k++) {
+				int j = upperColumns[k];
+				if (j != i) {
+					columns[next[i]] = j;
+					values[next[i]++] = upperValues[k];
+					columns[next[j]] = i;
+					values[next[j]++] = upperValues[k];
+				}
+			}
+		}
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return i <= j ? symmetric(i, j) : 0.0;
+	}
+
+	@Override
+	public double symmetric(int i, int j) {
+
+		if (i == j)
+			return diagonal[i];
+
+		int k = Arrays.binarySearch(columns, rowStart[i], rowStart[i + 1], j);
+		return k >= 0 ? values[k] : 0.0;
+	}
+
+	@Override
+	public double evaluate(double[] x) {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			double aux = x[i] * diagonal[i];
+			for (int k = upperStart[i]; k < rowStart[i + 1]; k++) {
+				aux += x[columns[k]] * values[k];
+			}
+			sum += aux * x[i];
+		}
+
+		return sum;
+	}
+
+	/**
+	 * {@inheritDoc} Only the adjacency of the selected variables is visited,
+	 * in O(k + their degrees).
+	 */
+	@Override
+	public double evaluate(double[] x, int[] selected, int count) {
+
+		double sum = 0.0;
+		for (int a = 0; a < count; a++) {
+			int i = selected[a];
+			double aux = diagonal[i];
+			for (int k = upperStart[i]; k < rowStart[i + 1]; k++) {
+				aux += x[columns[k]] * values[k];
+			}
+			sum += aux;
+		}
+
+		return sum;
+	}
+
+	@Override
+	public void evaluateBatch(double[] xs, int count, int[] rows, double[] results) {
+
+		for (int r = 0; r < count; r++) {
+			int row = r * size;
+			double sum = 0.0;
+			for (int i = 0; i < size; i++) {
+				if (xs[row + i] == 0.0)
+					continue;
+				sum += diagonal[i];
+				for (int k = upperStart[i]; k < rowStart[i + 1]; k++) {
+					sum += xs[row + columns[k]] * values[k];
+				}
+			}
+			results[r] = sum;
+		}
+	}
+
+	@Override
+	public double contribution(int i, double[] x) {
+
+		double sum = diagonal[i];
+		for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+			sum += x[columns[k]] * values[k];
+		}
+
+		return sum;
+	}
+
+	@Override
+	public void addSymmetricRow(int i, double factor, double[] target) {
+
+		for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+			target[columns[k]] += factor * values[k];
+		}
+	}
+
+	@Override
+	public double absoluteSum() {
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			sum += Math.abs(diagonal[i]);
+			for (int k = upperStart[i]; k < rowStart[i + 1]; k++) {
+				sum += Math.abs(values[k]);
+			}
+		}
+
+		return sum;
+	}
+
+}
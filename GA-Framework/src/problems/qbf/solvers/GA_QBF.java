@@ -1,6 +1,7 @@
 package problems.qbf.solvers;
 
 import java.io.IOException;
+import java.util.Arrays;
 import metaheuristics.ga.AbstractGA;
 import problems.qbf.QBF;
 import problems.qbf.QBF_Inverse;
@@ -15,6 +16,271 @@ import solutions.Solution;
  */
 public class GA_QBF extends AbstractGA<Integer, Integer> {
 
+	/**
+	 * the largest fraction of the loci in which a chromosome may differ from
+	 * its reference parent for its cost to be derived from the parent's one.
+	 * Each differing locus costs O(n), against O(n^2) for a full evaluation.
+	 */
+	protected static final double DELTA_EVALUATION_FRACTION = 0.25;
+
+	/**
+	 * the number of chromosomes evaluated together by
+	 * {@link QBF#evaluateBatch}
+	 */
+	protected static final int EVALUATION_BATCH = 64;
+
+	/**
+	 * the workspace of {@link #evaluateChunk} of each evaluation thread,
+	 * allocated once per thread as the evaluator forks are
+	 */
+	private final ThreadLocal<BatchWorkspace> batchWorkspace = ThreadLocal.withInitial(BatchWorkspace::new);
+
+	/**
+	 * A binary chromosome packing one gene per bit in an array of words,
+	 * instead of one boxed {@link Integer} per gene. Crossover is performed
+	 * with word masks and mutation with a single XOR.
+	 * 
+	 * An offspring also remembers the cost of the closest of its parents and
+	 * the loci in which it differs from it, which are kept up to date by
+	 * {@link #flip}, so that its cost can be derived from the parent's one
+	 * (see {@link GA_QBF#decode(Chromosome, Solution)}).
+	 */
+	public class BitChromosome extends Chromosome {
+
+		/**
+		 * the genes, locus i being bit (i % 64) of word (i / 64)
+		 */
+		protected long[] words;
+
+		/**
+		 * the number of genes
+		 */
+		protected int size;
+
+		/**
+		 * the loci in which this chromosome differs from its reference parent,
+		 * laid out as {@link #words}
+		 */
+		protected long[] diff;
+
+		/**
+		 * the cost of the reference parent
+		 */
+		protected double referenceCost;
+
+		/**
+		 * whether {@link #diff} and {@link #referenceCost} are valid
+		 */
+		protected boolean hasReference;
+
+		public BitChromosome() {
+			super(null);
+			words = new long[(chromosomeSize + 63) >>> 6];
+			diff = new long[words.length];
+		}
+
+		/**
+		 * {@inheritDoc} The reference parent is dropped as well.
+		 */
+		@Override
+		public void invalidate() {
+			super.invalidate();
+			hasReference = false;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return (int) (words[index >>> 6] >>> index) & 1;
+		}
+
+		@Override
+		public Integer set(int index, Integer element) {
+			Integer previous = get(index);
+			if (!previous.equals(element))
+				flip(index);
+			return previous;
+		}
+
+		/**
+		 * Only appending is supported, since genes are never inserted in the
+		 * middle of a chromosome.
+		 */
+		@Override
+		public void add(int index, Integer element) {
+			if (index != size)
+				throw new UnsupportedOperationException("Genes can only be appended to a BitChromosome.");
+			if ((size >>> 6) == words.length) {
+				words = Arrays.copyOf(words, words.length + 1);
+				diff = new long[words.length];
+			}
+			invalidate();
+			size++;
+			if (element != 0)
+				words[index >>> 6] |= 1L << index;
+		}
+
+		@Override
+		public Integer remove(int index) {
+			throw new UnsupportedOperationException("Genes cannot be removed from a BitChromosome.");
+		}
+
+		@Override
+		public void clear() {
+			invalidate();
+			Arrays.fill(words, 0L);
+			size = 0;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Inverts the gene at a given locus, keeping track of the difference
+		 * to the reference parent.
+		 * 
+		 * @param index
+		 *            The locus being flipped.
+		 */
+		public void flip(int index) {
+			boolean referenced = hasReference;
+			invalidate();
+			words[index >>> 6] ^= 1L << index;
+			if (referenced) {
+				diff[index >>> 6] ^= 1L << index;
+				hasReference = true;
+			}
+		}
+
+		/**
+		 * Makes this chromosome its own reference, with a cost computed
+		 * elsewhere (e.g. in a batch), so that decoding it takes that cost.
+		 * 
+		 * @param cost
+		 *            The cost of this chromosome.
+		 */
+		public void setKnownCost(double cost) {
+			invalidate();
+			Arrays.fill(diff, 0L);
+			referenceCost = cost;
+			hasReference = true;
+		}
+
+		/**
+		 * @return The number of loci in which this chromosome differs from its
+		 *         reference parent.
+		 */
+		public int countDifferences() {
+			int count = 0;
+			for (int w = 0; w < diff.length; w++) {
+				count += Long.bitCount(diff[w]);
+			}
+			return count;
+		}
+
+		/**
+		 * Gives the number of loci in which this chromosome differs from
+		 * another one of the same size.
+		 */
+		private int distance(BitChromosome other) {
+			int count = 0;
+			for (int w = 0; w < words.length; w++) {
+				count += Long.bitCount(words[w] ^ other.words[w]);
+			}
+			return count;
+		}
+
+		/**
+		 * Gives the first locus at or after a given one whose gene is 1.
+		 * 
+		 * @param from
+		 *            The locus where the search starts.
+		 * @return The locus found, or -1 if there is none.
+		 */
+		public int nextSetBit(int from) {
+			int w = from >>> 6;
+			if (w >= words.length)
+				return -1;
+			long word = words[w] & (-1L << from);
+			while (word == 0) {
+				if (++w == words.length)
+					return -1;
+				word = words[w];
+			}
+			int locus = (w << 6) + Long.numberOfTrailingZeros(word);
+			return locus < size ? locus : -1;
+		}
+
+		@Override
+		public void recombine(Chromosome outer, Chromosome inner, int from, int to) {
+
+			if (!(outer instanceof BitChromosome) || !(inner instanceof BitChromosome)) {
+				super.recombine(outer, inner, from, to);
+				return;
+			}
+
+			long[] outerWords = ((BitChromosome) outer).words;
+			long[] innerWords = ((BitChromosome) inner).words;
+			invalidate();
+			size = outer.size();
+			if (words.length != outerWords.length) {
+				words = new long[outerWords.length];
+				diff = new long[words.length];
+			}
+
+			for (int w = 0; w < words.length; w++) {
+				words[w] = outerWords[w];
+			}
+			for (int w = from >>> 6; from < to; w++) {
+				// the bits of word w inside [from, to)
+				int end = Math.min(to, (w + 1) << 6);
+				long mask = (-1L << from) & (end == (w + 1) << 6 ? -1L : ~(-1L << end));
+				words[w] = (words[w] & ~mask) | (innerWords[w] & mask);
+				from = end;
+			}
+
+			/* takes as reference the closest parent whose cost is known */
+			BitChromosome o = (BitChromosome) outer;
+			BitChromosome in = (BitChromosome) inner;
+			int outerDistance = o.decoded ? distance(o) : Integer.MAX_VALUE;
+			int innerDistance = in.decoded ? distance(in) : Integer.MAX_VALUE;
+			BitChromosome reference = outerDistance <= innerDistance ? o : in;
+			if (reference.decoded && reference != this) {
+				for (int w = 0; w < words.length; w++) {
+					diff[w] = words[w] ^ reference.words[w];
+				}
+				referenceCost = reference.solution.cost;
+				hasReference = true;
+			}
+
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof BitChromosome) {
+				BitChromosome other = (BitChromosome) o;
+				return size == other.size && Arrays.equals(words, other.words);
+			}
+			return super.equals(o);
+		}
+
+	}
+
+	/**
+	 * The chromosomes of a batch evaluated by {@link QBF#evaluateBatch}, with
+	 * their genes and the costs obtained.
+	 */
+	private static class BatchWorkspace {
+
+		final BitChromosome[] batch = new BitChromosome[EVALUATION_BATCH];
+
+		final long[][] bits = new long[EVALUATION_BATCH][];
+
+		final double[] costs = new double[EVALUATION_BATCH];
+
+	}
+
 	/**
 	 * Constructor for the GA_QBF class. The QBF objective function is passed as
 	 * argument for the superclass constructor.
@@ -62,6 +328,16 @@ public class GA_QBF extends AbstractGA<Integer, Integer> {
 		return sol;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The chromosomes of binary GAs are {@link BitChromosome}s.
+	 */
+	@Override
+	protected Chromosome createChromosome() {
+		return new BitChromosome();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -70,18 +346,139 @@ public class GA_QBF extends AbstractGA<Integer, Integer> {
 	 */
 	@Override
 	protected Solution<Integer> decode(Chromosome chromosome) {
+		return decode(chromosome, createEmptySol());
+	}
 
-		Solution<Integer> solution = createEmptySol();
-		for (int locus = 0; locus < chromosome.size(); locus++) {
-			if (chromosome.get(locus) == 1) {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * When the chromosome differs from its reference parent in few loci, its
+	 * cost is the parent's cost plus the insertion and removal deltas of those
+	 * loci (see {@link #evaluateFromReference}). Otherwise the QBF is fully
+	 * evaluated.
+	 */
+	@Override
+	protected Solution<Integer> decode(Chromosome chromosome, Solution<Integer> solution) {
+
+		solution.clear();
+		if (chromosome instanceof BitChromosome) {
+			BitChromosome bits = (BitChromosome) chromosome;
+			for (int locus = bits.nextSetBit(0); locus >= 0; locus = bits.nextSetBit(locus + 1)) {
 				solution.add(locus);
 			}
+			if (isDeltaEvaluable(bits)) {
+				solution.cost = evaluateFromReference(bits);
+				return solution;
+			}
+		} else {
+			for (int locus = 0; locus < chromosome.size(); locus++) {
+				if (chromosome.get(locus) == 1) {
+					solution.add(locus);
+				}
+			}
 		}
 
-		ObjFunction.evaluate(solution);
+		getObjFunction().evaluate(solution);
 		return solution;
 	}
 
+	/**
+	 * Derives the cost of a chromosome from the cost of its reference parent,
+	 * by setting the variables of the QBF to the parent's genes and flipping
+	 * the differing loci one at a time with {@link QBF#flipVariable(int)},
+	 * accumulating
+	 * {@link QBF#evaluateInsertionQBF(int)} and
+	 * {@link QBF#evaluateRemovalQBF(int)}.
+	 * 
+	 * @param chromosome
+	 *            A chromosome with a reference parent.
+	 * @return The cost of the chromosome.
+	 */
+	protected double evaluateFromReference(BitChromosome chromosome) {
+
+		QBF qbf = (QBF) getObjFunction();
+		long[] words = chromosome.words;
+		long[] diff = chromosome.diff;
+
+		if (chromosome.countDifferences() == 0)
+			return chromosome.referenceCost;
+
+		qbf.resetVariables();
+		for (int w = 0; w < words.length; w++) {
+			for (long reference = words[w] ^ diff[w]; reference != 0; reference &= reference - 1) {
+				qbf.flipVariable((w << 6) + Long.numberOfTrailingZeros(reference));
+			}
+		}
+
+		double cost = chromosome.referenceCost;
+		for (int w = 0; w < diff.length; w++) {
+			for (long flips = diff[w]; flips != 0; flips &= flips - 1) {
+				int locus = (w << 6) + Long.numberOfTrailingZeros(flips);
+				if (qbf.variables[locus] == 1.0)
+					cost += qbf.evaluateRemovalQBF(locus);
+				else
+					cost += qbf.evaluateInsertionQBF(locus);
+				qbf.flipVariable(locus);
+			}
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Tells whether the cost of a chromosome is derived from its reference
+	 * parent by {@link #evaluateFromReference} rather than fully evaluated.
+	 * 
+	 * @param chromosome
+	 *            The chromosome being decoded.
+	 * @return true if the chromosome differs from its reference parent in few
+	 *         loci.
+	 */
+	protected boolean isDeltaEvaluable(BitChromosome chromosome) {
+		return chromosome.hasReference && chromosome.countDifferences() <= DELTA_EVALUATION_FRACTION * chromosomeSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The chromosomes of the range that must be fully evaluated are evaluated
+	 * together, {@link #EVALUATION_BATCH} at a time, by
+	 * {@link QBF#evaluateBatch}, which reads the coefficients once per batch
+	 * instead of once per chromosome. The others are derived from their
+	 * parents as usual.
+	 */
+	@Override
+	protected void evaluateChunk(Population population, int from, int to) {
+
+		QBF qbf = (QBF) getObjFunction();
+		BatchWorkspace workspace = batchWorkspace.get();
+		BitChromosome[] batch = workspace.batch;
+		long[][] bits = workspace.bits;
+		double[] costs = workspace.costs;
+		int count = 0;
+
+		for (int i = from; i <= to; i++) {
+			if (count == EVALUATION_BATCH || (i == to && count > 0)) {
+				qbf.evaluateBatch(bits, count, costs);
+				for (int b = 0; b < count; b++) {
+					batch[b].setKnownCost(costs[b]);
+					batch[b] = null;
+					bits[b] = null;
+				}
+				count = 0;
+			}
+			if (i < to && population.get(i) instanceof BitChromosome) {
+				BitChromosome chromosome = (BitChromosome) population.get(i);
+				if (!chromosome.isDecoded() && !isDeltaEvaluable(chromosome)) {
+					batch[count] = chromosome;
+					bits[count++] = chromosome.words;
+				}
+			}
+		}
+
+		super.evaluateChunk(population, from, to);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -90,7 +487,7 @@ public class GA_QBF extends AbstractGA<Integer, Integer> {
 	@Override
 	protected Chromosome generateRandomChromosome() {
 
-		Chromosome chromosome = new Chromosome();
+		Chromosome chromosome = createChromosome();
 		for (int i = 0; i < chromosomeSize; i++) {
 			chromosome.add(rng.nextInt(2));
 		}
@@ -107,7 +504,7 @@ public class GA_QBF extends AbstractGA<Integer, Integer> {
 	@Override
 	protected Double fitness(Chromosome chromosome) {
 
-		return decode(chromosome).cost;
+		return getSolution(chromosome).cost;
 
 	}
 
@@ -121,7 +518,11 @@ public class GA_QBF extends AbstractGA<Integer, Integer> {
 	@Override
 	protected void mutateGene(Chromosome chromosome, Integer locus) {
 
-		chromosome.set(locus, 1 - chromosome.get(locus));
+		if (chromosome instanceof BitChromosome) {
+			((BitChromosome) chromosome).flip(locus);
+		} else {
+			chromosome.set(locus, 1 - chromosome.get(locus));
+		}
 
 	}
 
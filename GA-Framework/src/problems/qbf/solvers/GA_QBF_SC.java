@@ -2,11 +2,30 @@ package problems.qbf.solvers;
 
 import java.io.IOException;
 
+import problems.qbf.IncrementalQBFSolution;
 import problems.qbf.QBF_SC_Inverse;
+import problems.qbf.QBF_SC_Reduction;
 import solutions.Solution;
 
 public class GA_QBF_SC extends GA_QBF {
-    private QBF_SC_Inverse qbfSC;
+
+    /**
+     * whether chromosomes are repaired into set covers after being generated
+     * or mutated (see {@link #repair(Chromosome)})
+     */
+    protected boolean repair = false;
+
+    /**
+     * the preprocessing whose reduced problem is solved, or null if the
+     * problem is solved as loaded
+     */
+    protected QBF_SC_Reduction reduction;
+
+    /**
+     * the workspace of {@link #repair(Chromosome)}, created on first use;
+     * repairs run on the thread driving the search, as mutations do
+     */
+    private IncrementalQBFSolution repairSolution;
 
     	/**
 	 * Constructor for the GA_QBF class. The QBF objective function is passed as
@@ -32,9 +51,61 @@ public class GA_QBF_SC extends GA_QBF {
         Long timeoutInSeconds
     ) throws IOException {
 		super(new QBF_SC_Inverse(filename), generations, popSize, mutationRate, timeoutInSeconds);
-		qbfSC = (QBF_SC_Inverse) this.ObjFunction;
 	}
 
+    /**
+     * Constructor for the GA_QBF_SC class, for an objective function that is
+     * already loaded (e.g. a {@link QBF_SC_Inverse#fork()} of another one).
+     * 
+     * @param objFunction The QBF-SC objective function.
+     * @param generations Maximum number of generations.
+     * @param popSize Size of the population.
+     * @param mutationRate The mutation rate.
+     */
+    public GA_QBF_SC(QBF_SC_Inverse objFunction, Integer generations, Integer popSize, Double mutationRate, Long timeoutInSeconds) {
+        super(objFunction, generations, popSize, mutationRate, timeoutInSeconds);
+    }
+
+    /**
+     * Constructor for the GA_QBF_SC class solving the reduced problem of a
+     * preprocessing, so that each chromosome only has a gene per set left
+     * free. {@link #solve()} maps the best solution back to the original
+     * problem.
+     * 
+     * @param reduction The preprocessing of the QBF-SC objective function.
+     * @param generations Maximum number of generations.
+     * @param popSize Size of the population.
+     * @param mutationRate The mutation rate.
+     */
+    public GA_QBF_SC(QBF_SC_Reduction reduction, Integer generations, Integer popSize, Double mutationRate, Long timeoutInSeconds) {
+        super(reduction.getReduced(), generations, popSize, mutationRate, timeoutInSeconds);
+        this.reduction = reduction;
+    }
+
+    /**
+     * {@inheritDoc} If the GA solves the reduced problem of a preprocessing,
+     * the solution returned is the original one, with the original cost.
+     * 
+     * @throws RuntimeException
+     *             If every set was fixed by the preprocessing and the fixed
+     *             sets do not cover the elements, as when a run ends without
+     *             a feasible solution.
+     */
+    @Override
+    public Solution<Integer> solve() {
+        if (reduction == null)
+            return super.solve();
+
+        if (reduction.getReduced().getDomainSize() == 0) {
+            // every set was fixed, so there is nothing left to search
+            Solution<Integer> sol = reduction.expand(createEmptySol());
+            if (!reduction.getOriginal().isFeasible(sol))
+                throw new RuntimeException("No feasible solution found.");
+            return sol;
+        }
+        return reduction.expand(super.solve());
+    }
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -43,12 +114,122 @@ public class GA_QBF_SC extends GA_QBF {
 	 */
 	@Override
 	protected Double fitness(Chromosome chromosome) {
-        Solution<Integer> sol = decode(chromosome);
+        QBF_SC_Inverse qbfSC = (QBF_SC_Inverse) getObjFunction();
+        Solution<Integer> sol = getSolution(chromosome);
 		Double cost = sol.cost;
+        qbfSC.setVariables(sol); // the cached solution may have been decoded earlier
         Double penalty = qbfSC.countUncoveredElements() * qbfSC.getCoefficientsMagnitude();
 		return -(cost + penalty);
 	}
 
+    /**
+     * Switches the repair of chromosomes on or off. When on, the initial
+     * chromosomes and every mutated offspring are turned into set covers by
+     * {@link #repair(Chromosome)} before being evaluated, so the penalty of
+     * {@link #fitness} is only paid by instances having elements in no set.
+     * 
+     * @param repair
+     *            true to repair chromosomes.
+     */
+    public void setRepair(boolean repair) {
+        this.repair = repair;
+    }
+
+    @Override
+    protected Population initializePopulation() {
+        return repair(super.initializePopulation());
+    }
+
+    @Override
+    protected void mutate(Chromosome chromosome) {
+        super.mutate(chromosome);
+        if (repair)
+            repair(chromosome);
+    }
+
+    /**
+     * Repairs every chromosome of a population, if repairing is on.
+     * 
+     * @param population
+     *            The population.
+     * @return The same population.
+     */
+    protected Population repair(Population population) {
+        if (repair) {
+            for (Chromosome c : population) {
+                repair(c);
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Turns a chromosome into a set cover, greedily. While an element is
+     * uncovered, the set containing it that lowers the fitness the most is
+     * added, scoring each candidate as {@link #fitness(Chromosome)} does: the
+     * insertion delta of the QBF minus the penalty of the elements it newly
+     * covers. The candidates come from the element->sets index of
+     * {@link QBF_SC_Inverse}.
+     * Then a reverse pass drops each set whose elements are all covered by
+     * other sets, if that lowers the cost.
+     * 
+     * The chromosome is loaded into an {@link IncrementalQBFSolution}, so each
+     * insertion and removal delta is answered in O(1) and only the sets
+     * actually flipped cost a row of the matrix. Its value is the cost of the
+     * repaired chromosome, which is then known without evaluating it.
+     * 
+     * @param chromosome
+     *            The chromosome being repaired.
+     */
+    protected void repair(Chromosome chromosome) {
+
+        QBF_SC_Inverse qbfSC = (QBF_SC_Inverse) getObjFunction();
+        if (repairSolution == null)
+            repairSolution = qbfSC.createIncrementalSolution();
+        IncrementalQBFSolution x = repairSolution;
+        x.clear();
+        qbfSC.clearCover();
+        for (int i = 0; i < chromosomeSize; i++) {
+            if (chromosome.get(i) == 1) {
+                x.flip(i);
+                qbfSC.addToCover(i);
+            }
+        }
+
+        double penalty = qbfSC.getCoefficientsMagnitude();
+        for (int elem = 0; elem < qbfSC.getElementCount() && qbfSC.getUncoveredCount() > 0; elem++) {
+            if (qbfSC.getCoverage(elem) > 0)
+                continue;
+
+            int best = -1;
+            double bestScore = Double.POSITIVE_INFINITY;
+            for (int set : qbfSC.getSetsOfElement(elem)) {
+                double score = x.evaluateInsertion(set) - penalty * qbfSC.countNewlyCovered(set);
+                if (best < 0 || score < bestScore) {
+                    best = set;
+                    bestScore = score;
+                }
+            }
+            if (best < 0)
+                continue; // the element is in no set, so no cover exists
+
+            x.flip(best);
+            qbfSC.addToCover(best);
+            mutateGene(chromosome, best);
+        }
+
+        for (int set = 0; set < chromosomeSize; set++) {
+            if (x.isSelected(set) && qbfSC.countOnlyCovered(set) == 0 && x.evaluateRemoval(set) < 0.0) {
+                x.flip(set);
+                qbfSC.removeFromCover(set);
+                mutateGene(chromosome, set);
+            }
+        }
+
+        if (chromosome instanceof BitChromosome)
+            ((BitChromosome) chromosome).setKnownCost(x.getValue());
+    }
+
     /**
 	 * A main method used for testing the GA metaheuristic.
 	 * 
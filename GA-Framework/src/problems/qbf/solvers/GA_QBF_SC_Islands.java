@@ -0,0 +1,82 @@
+package problems.qbf.solvers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import metaheuristics.ga.IslandGA;
+import problems.qbf.QBF_SC_Inverse;
+import solutions.Solution;
+
+/**
+ * Island model of {@link GA_QBF_SC}, using all cores on a single instance. The
+ * instance is loaded once and each island evaluates it through its own fork.
+ */
+public class GA_QBF_SC_Islands extends IslandGA<Integer, Integer> {
+
+	/**
+	 * Constructor for the GA_QBF_SC_Islands class.
+	 * 
+	 * @param islandCount
+	 *            Number of islands.
+	 * @param generations
+	 *            Maximum number of generations of each island.
+	 * @param popSize
+	 *            Size of the population of each island.
+	 * @param mutationRate
+	 *            The mutation rate.
+	 * @param filename
+	 *            Name of the file for which the objective function parameters
+	 *            should be read.
+	 * @param migrationInterval
+	 *            Number of generations between two migrations.
+	 * @param migrants
+	 *            Number of chromosomes sent by each island at a migration.
+	 * @param topology
+	 *            The connections between islands.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public GA_QBF_SC_Islands(
+        int islandCount,
+        Integer generations,
+        Integer popSize,
+        Double mutationRate,
+        String filename,
+        Long timeoutInSeconds,
+        int migrationInterval,
+        int migrants,
+        Topology topology
+    ) throws IOException {
+		super(createIslands(islandCount, generations, popSize, mutationRate, new QBF_SC_Inverse(filename), timeoutInSeconds),
+				migrationInterval, migrants, topology);
+	}
+
+	private static List<GA_QBF_SC> createIslands(int islandCount, Integer generations, Integer popSize, Double mutationRate,
+			QBF_SC_Inverse qbfSC, Long timeoutInSeconds) {
+		List<GA_QBF_SC> islands = new ArrayList<GA_QBF_SC>();
+		for (int i = 0; i < islandCount; i++) {
+			islands.add(new GA_QBF_SC(i == 0 ? qbfSC : qbfSC.fork(), generations, popSize, mutationRate, timeoutInSeconds));
+		}
+		return islands;
+	}
+
+    /**
+	 * A main method used for testing the island model.
+	 * 
+	 */
+	public static void main(String[] args) throws IOException {
+        Long timeoutInSeconds = 60L;
+		int islandCount = Runtime.getRuntime().availableProcessors();
+		long startTime = System.currentTimeMillis();
+		GA_QBF_SC_Islands ga = new GA_QBF_SC_Islands(islandCount, Integer.MAX_VALUE, 100, 1.0 / 100.0,
+				"GA-Framework/instances/qbf-sc/instance_12.txt", timeoutInSeconds, 50, 2, Topology.RING);
+		ga.setSeed(0L);
+		Solution<Integer> bestSol = ga.solve();
+		System.out.println("maxVal = " + bestSol);
+		long endTime = System.currentTimeMillis();
+		long totalTime = endTime - startTime;
+		System.out.println("Time = " + (double) totalTime / (double) 1000 + " seg");
+
+	}
+}
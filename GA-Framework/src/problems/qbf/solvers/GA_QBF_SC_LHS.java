@@ -26,7 +26,7 @@ public class GA_QBF_SC_LHS extends GA_QBF_SC {
         Population population = new Population();
 
         for (int i = 0; i < popSize; i++) {
-            population.add(new Chromosome());
+            population.add(createChromosome());
         }
 
         for (int locus = 0; locus < chromosomeSize; locus++) {
@@ -43,6 +43,6 @@ public class GA_QBF_SC_LHS extends GA_QBF_SC {
             }
         }
 
-        return population;
+        return repair(population);
     }
 }
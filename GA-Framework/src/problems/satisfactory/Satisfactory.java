@@ -26,9 +26,138 @@ public class Satisfactory implements Evaluator<Double>
     private List<ItemFlow> desiredOutputs;
     private double penaltyConstant = 1000.0;
 
+    // The recipes compiled at load time into a sparse recipes x items incidence matrix, in CSR form: the flows of
+    // recipe r are at [recipeStart[r], recipeStart[r + 1]) of flowItems and flowRates, with negative rates for inputs
+    // and positive ones for outputs. Only the items of the available inputs and desired outputs are kept, numbered in
+    // that order, since the net production of the other items never enters C(x) nor P(x); so most recipes have no
+    // flows at all, and a Balance holds a handful of items however large the instance is.
+    private int itemCount;
+    private int[] recipeStart;
+    private int[] flowItems;
+    private double[] flowRates;
+
+    // The available inputs and desired outputs as item numbers and quantities per minute, in the order of the instance
+    private int[] availableItems;
+    private double[] availableQuantities;
+    private int[] desiredItems;
+    private double[] desiredQuantities;
+
+    // The penalty terms, one per available input and then one per desired output (see penaltyTerm), grouped by item:
+    // the terms of item i are itemTerms[itemTermStart[i] ... itemTermStart[i + 1] - 1]
+    private int[] itemTermStart;
+    private int[] itemTerms;
+
+    // Workspace of the evaluations taking usages rather than a Balance, so each fork has its own
+    private final Balance workspace;
+
+    // Result of evaluate(double[], int, Evaluation), so callers can keep it and reuse it without allocating
+    public static class Evaluation
+    {
+        public double cost;         // C(x), the number of machines
+        public double penalty;      // P(x), the raw penalty, not scaled by any penalty constant
+        public boolean feasible;    // Whether P(x) = 0
+    }
+
     public Satisfactory(String filename) throws IOException
     {
         readInput(filename);
+        compile();
+        workspace = new Balance();
+    }
+
+    // Constructor used by fork(), sharing the instance and its compiled form
+    protected Satisfactory(Satisfactory other)
+    {
+        recipes = other.recipes;
+        availableInputs = other.availableInputs;
+        desiredOutputs = other.desiredOutputs;
+        penaltyConstant = other.penaltyConstant;
+        itemCount = other.itemCount;
+        recipeStart = other.recipeStart;
+        flowItems = other.flowItems;
+        flowRates = other.flowRates;
+        availableItems = other.availableItems;
+        availableQuantities = other.availableQuantities;
+        desiredItems = other.desiredItems;
+        desiredQuantities = other.desiredQuantities;
+        itemTermStart = other.itemTermStart;
+        itemTerms = other.itemTerms;
+        workspace = new Balance();
+    }
+
+    // Numbers the items and builds the vectors of available and desired quantities and the incidence matrix
+    private void compile()
+    {
+        Map<String, Integer> items = new HashMap<>();
+
+        availableItems = new int[availableInputs.size()];
+        availableQuantities = new double[availableInputs.size()];
+        for (int i = 0; i < availableItems.length; i++) {
+            availableItems[i] = itemNumber(items, availableInputs.get(i).name);
+            availableQuantities[i] = availableInputs.get(i).quantityPerMinute;
+        }
+
+        desiredItems = new int[desiredOutputs.size()];
+        desiredQuantities = new double[desiredOutputs.size()];
+        for (int i = 0; i < desiredItems.length; i++) {
+            desiredItems[i] = itemNumber(items, desiredOutputs.get(i).name);
+            desiredQuantities[i] = desiredOutputs.get(i).quantityPerMinute;
+        }
+
+        itemCount = items.size();
+
+        int flows = 0;
+        for (Recipe r : recipes) {
+            for (ItemFlow in : r.getInputs())
+                flows += items.containsKey(in.name) ? 1 : 0;
+            for (ItemFlow out : r.getOutputs())
+                flows += items.containsKey(out.name) ? 1 : 0;
+        }
+
+        recipeStart = new int[recipes.size() + 1];
+        flowItems = new int[flows];
+        flowRates = new double[flows];
+        int k = 0;
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe r = recipes.get(i);
+            recipeStart[i] = k;
+            for (ItemFlow in : r.getInputs()) {
+                Integer item = items.get(in.name);
+                if (item != null) {
+                    flowItems[k] = item;
+                    flowRates[k++] = -in.quantityPerMinute;
+                }
+            }
+            for (ItemFlow out : r.getOutputs()) {
+                Integer item = items.get(out.name);
+                if (item != null) {
+                    flowItems[k] = item;
+                    flowRates[k++] = out.quantityPerMinute;
+                }
+            }
+        }
+        recipeStart[recipes.size()] = k;
+
+        int terms = availableItems.length + desiredItems.length;
+        itemTermStart = new int[itemCount + 1];
+        for (int t = 0; t < terms; t++)
+            itemTermStart[termItem(t) + 1]++;
+        for (int i = 0; i < itemCount; i++)
+            itemTermStart[i + 1] += itemTermStart[i];
+        itemTerms = new int[terms];
+        int[] next = Arrays.copyOf(itemTermStart, itemCount);
+        for (int t = 0; t < terms; t++)
+            itemTerms[next[termItem(t)]++] = t;
+    }
+
+    private static int itemNumber(Map<String, Integer> items, String name)
+    {
+        Integer number = items.get(name);
+        if (number == null) {
+            number = items.size();
+            items.put(name, number);
+        }
+        return number;
     }
 
     private void readInput(String filename) throws IOException
@@ -83,14 +212,19 @@ public class Satisfactory implements Evaluator<Double>
 
     @Override
     public Double evaluate(Solution<Double> sol) {
-        double cost = computeTotalCost(sol);    // C(x)
-        double penalty = computePenalty(sol);   // P(x)
-        return cost + penalty;
+        Evaluation evaluation = evaluate(toUsages(sol), 0, new Evaluation());
+        return evaluation.cost + evaluation.penalty;
     }
 
     @Override
     public boolean isFeasible(Solution<Double> sol) {
-        return computePenalty(sol) == 0.0;
+        return evaluate(toUsages(sol), 0, new Evaluation()).feasible;
+    }
+
+    // The instance and its compiled form are shared, while the workspace of evaluate and computePenalty is not
+    @Override
+    public Satisfactory fork() {
+        return new Satisfactory(this);
     }
 
     @Override
@@ -101,40 +235,49 @@ public class Satisfactory implements Evaluator<Double>
     // The next region of methods may not be utilized in the GA, but are implemented because of the Evaluator interface
     //#region Evaluator Interface (Unused methods)
 
+    // In the methods below, sol holds the usage of every recipe and elem is the index of a recipe (a Double only
+    // because the genes are), not a usage: inserting it raises its usage by USAGE_STEP, removing it lowers its usage
+    // by USAGE_STEP down to 0, and exchanging does both. The variations of evaluate(sol) are computed on the balance
+    // of sol, so only the items of the recipes involved are evaluated again
+    private static final double USAGE_STEP = 0.1;
+
     @Override
     public Double evaluateInsertionCost(Double elem, Solution<Double> sol)
     {
-        // delta is utilized to measure how much the cost variates if the production is a little increased
-        double delta = 0.1;
-        Solution<Double> clone = new Solution<>(sol);
-        clone.add(elem + delta);
-        double oldCost = evaluate(sol);
-        double newCost = evaluate(clone);
-        return newCost - oldCost;
-
+        return evaluateUsageSteps(sol, elem.intValue(), -1);
     }
 
     @Override
     public Double evaluateRemovalCost(Double elem, Solution<Double> sol)
     {
-        // delta is utilized to measure how much the cost variates if the production is a little decreased
-        double delta = 0.1;
-        Solution<Double> clone = new Solution<>(sol);
-        clone.remove(elem);
-        clone.add(elem - delta);
-        double oldCost = evaluate(sol);
-        double newCost = evaluate(clone);
-        return newCost - oldCost;
+        return evaluateUsageSteps(sol, -1, elem.intValue());
     }
 
     @Override
     public Double evaluateExchangeCost(Double elemIn, Double elemOut, Solution<Double> sol)
     {
-        double oldCost = evaluate(sol);
-        Solution<Double> clone = new Solution<>(sol);
-        int idxOut = clone.indexOf(elemOut);
-        if (idxOut >= 0) clone.set(idxOut, elemIn);
-        double newCost = evaluate(clone);
+        return evaluateUsageSteps(sol, elemIn.intValue(), elemOut.intValue());
+    }
+
+    // The variation of evaluate(sol) when the usage of recipe raised goes up by USAGE_STEP and that of recipe lowered
+    // goes down by USAGE_STEP, either of them being -1 for none
+    private double evaluateUsageSteps(Solution<Double> sol, int raised, int lowered)
+    {
+        double[] usages = toUsages(sol);
+        workspace.compute(usages, 0);
+        double oldCost = workspace.getCost() + workspace.getPenalty();
+
+        if (raised >= 0) {
+            workspace.setUsage(raised, usages[raised], usages[raised] + USAGE_STEP);
+            usages[raised] += USAGE_STEP;
+        }
+        if (lowered >= 0) {
+            double usage = Math.max(0.0, usages[lowered] - USAGE_STEP);
+            workspace.setUsage(lowered, usages[lowered], usage);
+            usages[lowered] = usage;
+        }
+
+        double newCost = workspace.getCost() + workspace.getPenalty();
         return newCost - oldCost;
     }
 
@@ -145,11 +288,17 @@ public class Satisfactory implements Evaluator<Double>
     //#region Methods
 
     public double computeTotalCost(Solution<Double> sol)
+    {
+        return computeTotalCost(toUsages(sol), 0);
+    }
+
+    // Same as computeTotalCost(Solution), reading the recipe usages from usages[offset ... offset + recipes.size() - 1]
+    public double computeTotalCost(double[] usages, int offset)
     {
         int totalMachines = 0;
 
         for (int i = 0; i < recipes.size(); i++) {
-            double recipePercentage = sol.get(i);
+            double recipePercentage = usages[offset + i];
             // recipePercentage represents the [0, 1] value of usage of the current recipe.
             // If recipePercentage = 0.0 → doesn't use the recipe (0 machines)
             // If 0 < recipePercentage < 1.0 → uses 1 machine
@@ -163,39 +312,162 @@ public class Satisfactory implements Evaluator<Double>
 
     public double computePenalty(Solution<Double> sol)
     {
-        Map<String, Double> finalProduction = new HashMap<>();
+        return computePenalty(toUsages(sol), 0);
+    }
 
-        // Gets total production and consumption of all recipes
-        for (int i = 0; i < recipes.size(); i++) {
-            double usage = sol.get(i);
-            Recipe r = recipes.get(i);
+    // Same as computePenalty(Solution), reading the recipe usages from usages[offset ... offset + recipes.size() - 1].
+    // It allocates nothing, but uses the workspace of this fork.
+    public double computePenalty(double[] usages, int offset)
+    {
+        workspace.compute(usages, offset);
+        return workspace.getPenalty();
+    }
 
-            for (ItemFlow in : r.getInputs()) {
-                finalProduction.merge(in.name, -usage * in.quantityPerMinute, Double::sum);
+    // Computes C(x), P(x) and the feasibility of x in a single pass over the recipe usages
+    // usages[offset ... offset + recipes.size() - 1], writing them into result, which is returned. The values are the
+    // same as those of computeTotalCost, computePenalty and isFeasible. It allocates nothing, but uses the workspace
+    // of this fork.
+    public Evaluation evaluate(double[] usages, int offset, Evaluation result)
+    {
+        workspace.compute(usages, offset);
+        result.cost = workspace.getCost();
+        result.penalty = workspace.getPenalty();
+        result.feasible = workspace.isFeasible();
+        return result;
+    }
+
+    public Balance newBalance()
+    {
+        return new Balance();
+    }
+
+    // The net production of the items for one vector of recipe usages, with its cost C(x) and penalty P(x). Once
+    // computed, it follows a change of a single usage in O(flows of that recipe), since only the items of the recipe
+    // and their penalty terms change, so a GA may keep one per individual and update it as its genes mutate
+    public class Balance
+    {
+        private final double[] production = new double[itemCount];
+        private int machines;
+        private double penalty;
+        private int violations;     // Number of positive penalty terms, which tells feasibility regardless of rounding
+        private int updates;        // Usage changes applied since the last full computation
+
+        private Balance()
+        {
+        }
+
+        // Computes the balance of the usages usages[offset ... offset + recipes.size() - 1] from scratch
+        public void compute(double[] usages, int offset)
+        {
+            Arrays.fill(production, 0.0);
+            machines = 0;
+
+            // Gets total production and consumption of all recipes, as the product of the usages by the incidence matrix
+            for (int i = 0; i < recipeStart.length - 1; i++) {
+                double usage = usages[offset + i];
+                machines += (int) Math.ceil(usage);
+                if (usage == 0.0)
+                    continue;
+                for (int k = recipeStart[i]; k < recipeStart[i + 1]; k++) {
+                    production[flowItems[k]] += usage * flowRates[k];
+                }
             }
-            for (ItemFlow out : r.getOutputs()) {
-                finalProduction.merge(out.name, usage * out.quantityPerMinute, Double::sum);
+
+            // Calculates penalty considering available and utilized resources, then desired outputs
+            penalty = 0.0;
+            violations = 0;
+            for (int t = 0; t < itemTerms.length; t++) {
+                double term = penaltyTerm(t, production[termItem(t)]);
+                if (term > 0.0) {
+                    penalty += term;
+                    violations++;
+                }
             }
+
+            updates = 0;
         }
 
-        double penalty = 0.0;
-        // Calculates penalty considering available and utilized resources
-        for (ItemFlow available : availableInputs) {
-            double net = finalProduction.getOrDefault(available.name, 0.0);
-            if (net < -available.quantityPerMinute) {
-                penalty += Math.abs(net + available.quantityPerMinute);
+        // Changes the usage of a recipe from oldUsage, which must be its usage in this balance, to newUsage
+        public void setUsage(int recipe, double oldUsage, double newUsage)
+        {
+            machines += (int) Math.ceil(newUsage) - (int) Math.ceil(oldUsage);
+            updates++;
+
+            double delta = newUsage - oldUsage;
+            if (delta == 0.0)
+                return;
+            for (int k = recipeStart[recipe]; k < recipeStart[recipe + 1]; k++) {
+                int item = flowItems[k];
+                double before = production[item];
+                double after = before + delta * flowRates[k];
+                production[item] = after;
+                for (int p = itemTermStart[item]; p < itemTermStart[item + 1]; p++) {
+                    double oldTerm = penaltyTerm(itemTerms[p], before);
+                    double newTerm = penaltyTerm(itemTerms[p], after);
+                    violations += (newTerm > 0.0 ? 1 : 0) - (oldTerm > 0.0 ? 1 : 0);
+                    penalty += newTerm - oldTerm;
+                }
             }
+            // The running sum may keep a rounding residue once every term is back to 0
+            if (violations == 0)
+                penalty = 0.0;
         }
 
-        // Applies calculated penalty
-        for (ItemFlow desired : desiredOutputs) {
-            double produced = finalProduction.getOrDefault(desired.name, 0.0);
-            if (produced < desired.quantityPerMinute) {
-                penalty += (desired.quantityPerMinute - produced);
-            }
+        public void copyFrom(Balance other)
+        {
+            System.arraycopy(other.production, 0, production, 0, production.length);
+            machines = other.machines;
+            penalty = other.penalty;
+            violations = other.violations;
+            updates = other.updates;
+        }
+
+        // Whether enough changes were applied for their rounding errors to matter, and for a full computation to cost
+        // no more than they did, so that it should be computed again
+        public boolean isStale()
+        {
+            return updates >= recipeStart.length - 1;
+        }
+
+        public double getCost()
+        {
+            return machines;
+        }
+
+        public double getPenalty()
+        {
+            return penalty;
+        }
+
+        public boolean isFeasible()
+        {
+            return violations == 0;
+        }
+    }
+
+    // Penalty term t given the net production of its item: the excess consumption of available input t, for
+    // t < availableItems.length, or the shortfall of desired output t - availableItems.length
+    private double penaltyTerm(int t, double net)
+    {
+        if (t < availableItems.length) {
+            double available = availableQuantities[t];
+            return net < -available ? Math.abs(net + available) : 0.0;
         }
+        double desired = desiredQuantities[t - availableItems.length];
+        return net < desired ? desired - net : 0.0;
+    }
 
-        return penalty;
+    private int termItem(int t)
+    {
+        return t < availableItems.length ? availableItems[t] : desiredItems[t - availableItems.length];
+    }
+
+    private double[] toUsages(Solution<Double> sol)
+    {
+        double[] usages = new double[recipes.size()];
+        for (int i = 0; i < usages.length; i++)
+            usages[i] = sol.get(i);
+        return usages;
     }
 
     //#region Gets/Sets
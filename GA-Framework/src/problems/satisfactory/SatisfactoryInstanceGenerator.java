@@ -0,0 +1,208 @@
+package problems.satisfactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.gson.Gson;
+import metaheuristics.ga.RandomStream;
+import problems.satisfactory.Recipe.ItemFlow;
+
+/**
+ * Generates random Satisfactory instances of any size, reproducibly from a seed, in the JSON format read by
+ * {@link Satisfactory}.
+ *
+ * Items are laid out in tiers: tier 0 holds the raw items, and each of the {@link #depth} tiers above it holds
+ * {@link #width} items. Every item of tier t has a main recipe taking {@link #fanOut} distinct inputs, one of them
+ * from tier t - 1 and the others from any lower tier, so the recipe graph is exactly {@link #depth} recipes deep. A
+ * fraction {@link #alternates} of the items also gets an alternate recipe with other inputs. The desired outputs are
+ * items of the top tier, and the available inputs hold {@link #slack} times the raw items needed by the main recipes,
+ * so every instance is feasible.
+ *
+ * Run it with {@code java problems.satisfactory.SatisfactoryInstanceGenerator <output.json> [-seed s] [-depth d]
+ * [-width w] [-fanout f] [-alternates a] [-raw r] [-outputs k] [-slack s]}; the instance has about
+ * depth * width * (1 + alternates) recipes.
+ */
+public class SatisfactoryInstanceGenerator
+{
+    // Quantities per minute are multiples of this step, as in the game
+    private static final int QUANTITY_STEP = 5;
+
+    private final RandomStream rng;
+
+    public int depth = 5;
+    public int width = 20;
+    public int fanOut = 2;
+    public double alternates = 0.2;
+    public int rawItems = 4;
+    public int desiredOutputs = 2;
+    public double slack = 1.5;
+
+    public SatisfactoryInstanceGenerator(long seed)
+    {
+        this.rng = new RandomStream(seed);
+    }
+
+    private static ItemFlow flow(String name, double quantityPerMinute)
+    {
+        ItemFlow flow = new ItemFlow();
+        flow.name = name;
+        flow.quantityPerMinute = quantityPerMinute;
+        return flow;
+    }
+
+    private double nextQuantity()
+    {
+        return QUANTITY_STEP * (1 + rng.nextInt(12));
+    }
+
+    // The item at a position of the concatenation of all tiers, from the raw items up
+    private String itemAt(List<List<String>> tiers, int position)
+    {
+        if (position < rawItems)
+            return tiers.get(0).get(position);
+        position -= rawItems;
+        return tiers.get(1 + position / width).get(position % width);
+    }
+
+    // A recipe producing item tiers[tier][index] from fanOut distinct items of lower tiers, one of them in tier - 1
+    private Recipe nextRecipe(String name, List<List<String>> tiers, int tier, int index)
+    {
+        List<String> previousTier = tiers.get(tier - 1);
+        Set<String> chosen = new LinkedHashSet<>();
+        chosen.add(previousTier.get(rng.nextInt(previousTier.size())));
+
+        // The other inputs are drawn by rejection, which is quick since fanOut is small against the lower tiers
+        int lower = rawItems + (tier - 1) * width;
+        int count = Math.min(fanOut, lower);
+        while (chosen.size() < count)
+            chosen.add(itemAt(tiers, rng.nextInt(lower)));
+
+        List<ItemFlow> inputs = new ArrayList<>();
+        for (String input : chosen)
+            inputs.add(flow(input, nextQuantity()));
+
+        List<ItemFlow> outputs = new ArrayList<>();
+        outputs.add(flow(tiers.get(tier).get(index), nextQuantity()));
+        return new Recipe(name, inputs, outputs);
+    }
+
+    public void generate(String filename) throws IOException
+    {
+        List<List<String>> tiers = new ArrayList<>();
+        List<String> raw = new ArrayList<>();
+        for (int k = 0; k < rawItems; k++)
+            raw.add("raw_" + k);
+        tiers.add(raw);
+        for (int t = 1; t <= depth; t++)
+        {
+            List<String> items = new ArrayList<>();
+            for (int k = 0; k < width; k++)
+                items.add("item_" + t + "_" + k);
+            tiers.add(items);
+        }
+
+        // Main recipes first, in tier order, then the alternates
+        List<Recipe> recipes = new ArrayList<>();
+        Map<String, Recipe> mainRecipes = new HashMap<>();
+        for (int t = 1; t <= depth; t++)
+        {
+            for (int k = 0; k < width; k++)
+            {
+                Recipe recipe = nextRecipe(tiers.get(t).get(k), tiers, t, k);
+                recipes.add(recipe);
+                mainRecipes.put(tiers.get(t).get(k), recipe);
+            }
+        }
+        for (int t = 1; t <= depth; t++)
+        {
+            for (int k = 0; k < width; k++)
+            {
+                if (rng.nextDouble() < alternates)
+                    recipes.add(nextRecipe("alternate_" + tiers.get(t).get(k), tiers, t, k));
+            }
+        }
+
+        List<ItemFlow> desired = new ArrayList<>();
+        Map<String, Double> demand = new HashMap<>();
+        List<String> top = tiers.get(depth);
+        for (int k = 0; k < Math.min(desiredOutputs, top.size()); k++)
+        {
+            double quantity = 1 + rng.nextInt(10);
+            desired.add(flow(top.get(k), quantity));
+            demand.put(top.get(k), quantity);
+        }
+
+        // The demand of each tier is met by its main recipes, which pass it down to the lower tiers
+        for (int t = depth; t >= 1; t--)
+        {
+            for (String item : tiers.get(t))
+            {
+                double needed = demand.getOrDefault(item, 0.0);
+                if (needed == 0.0)
+                    continue;
+                Recipe recipe = mainRecipes.get(item);
+                double usage = needed / recipe.getOutputs().get(0).quantityPerMinute;
+                for (ItemFlow in : recipe.getInputs())
+                    demand.merge(in.name, usage * in.quantityPerMinute, Double::sum);
+            }
+        }
+
+        List<ItemFlow> available = new ArrayList<>();
+        for (String item : raw)
+            available.add(flow(item, Math.ceil(slack * demand.getOrDefault(item, 0.0)) + 60.0));
+
+        Map<String, Object> instance = new LinkedHashMap<>();
+        instance.put("recipes", recipes);
+        instance.put("available_inputs", available);
+        instance.put("desired_outputs", desired);
+        try (Writer out = new FileWriter(filename))
+        {
+            new Gson().toJson(instance, out);
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: SatisfactoryInstanceGenerator <output.json> [-seed s] [-depth d] [-width w]"
+                    + " [-fanout f] [-alternates a] [-raw r] [-outputs k] [-slack s]");
+            System.exit(1);
+        }
+
+        long seed = 0;
+        for (int a = 1; a < args.length; a++)
+        {
+            if (args[a].equals("-seed"))
+                seed = Long.parseLong(args[++a]);
+        }
+        SatisfactoryInstanceGenerator generator = new SatisfactoryInstanceGenerator(seed);
+
+        for (int a = 1; a < args.length; a++)
+        {
+            switch (args[a])
+            {
+                case "-seed": a++; break;
+                case "-depth": generator.depth = Integer.parseInt(args[++a]); break;
+                case "-width": generator.width = Integer.parseInt(args[++a]); break;
+                case "-fanout": generator.fanOut = Integer.parseInt(args[++a]); break;
+                case "-alternates": generator.alternates = Double.parseDouble(args[++a]); break;
+                case "-raw": generator.rawItems = Integer.parseInt(args[++a]); break;
+                case "-outputs": generator.desiredOutputs = Integer.parseInt(args[++a]); break;
+                case "-slack": generator.slack = Double.parseDouble(args[++a]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[a] + ".");
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        generator.generate(args[0]);
+        System.out.println(args[0] + " (" + (System.currentTimeMillis() - startTime) + " ms)");
+    }
+}
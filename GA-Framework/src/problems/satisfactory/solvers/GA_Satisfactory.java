@@ -1,21 +1,200 @@
 package problems.satisfactory.solvers;
 
 import java.io.IOException;
+import java.util.Arrays;
 import metaheuristics.ga.AbstractGA;
 import problems.satisfactory.Satisfactory;
 import solutions.Solution;
 
 public class GA_Satisfactory extends AbstractGA<Double, Double>
 {
-    private Satisfactory satisfactoryProblem;
+    /**
+     * A chromosome whose genes are primitive doubles stored in a slice of an array, which is usually shared by the
+     * whole population (see {@link GA_Satisfactory#genes}).
+     */
+    public class DoubleChromosome extends Chromosome
+    {
+        protected final double[] genes;
+        protected final int offset;     // genes[offset ... offset + chromosomeSize - 1] belong to this chromosome
+        protected int size;
+
+        // Net production, cost and raw penalty of the genes (see GA_Satisfactory#evaluate), which setGene and recombine
+        // keep up to date while balanced. Unlike the fitness, they do not depend on the generation
+        protected Satisfactory.Balance balance;
+        protected boolean balanced;
+
+        public DoubleChromosome()
+        {
+            this(new double[chromosomeSize], 0);
+        }
+
+        public DoubleChromosome(double[] genes, int offset)
+        {
+            super(null);
+            this.genes = genes;
+            this.offset = offset;
+        }
+
+        public double getGene(int locus)
+        {
+            return genes[offset + locus];
+        }
+
+        public void setGene(int locus, double value)
+        {
+            double previous = genes[offset + locus];
+            boolean keepBalance = balanced;
+            invalidate();
+            genes[offset + locus] = value;
+
+            // Only the items of the recipe at this locus change, so the balance follows the gene
+            if (keepBalance) {
+                balance.setUsage(locus, previous, value);
+                balanced = !balance.isStale();
+            }
+        }
+
+        @Override
+        public void invalidate()
+        {
+            super.invalidate();
+            balanced = false;
+        }
+
+        // Whether sol is the solution decoded from the current genes, whose balance is then up to date too
+        public boolean isDecodedInto(Solution<Double> sol)
+        {
+            return decoded && solution == sol;
+        }
+
+        @Override
+        public Double get(int index)
+        {
+            return genes[offset + index];
+        }
+
+        @Override
+        public Double set(int index, Double element)
+        {
+            Double previous = genes[offset + index];
+            setGene(index, element);
+            return previous;
+        }
+
+        // Only appending is supported, since genes are never inserted in the middle of a chromosome
+        @Override
+        public void add(int index, Double element)
+        {
+            if (index != size || size == chromosomeSize)
+                throw new UnsupportedOperationException("Genes can only be appended to a DoubleChromosome.");
+            invalidate();
+            genes[offset + size++] = element;
+        }
+
+        @Override
+        public Double remove(int index)
+        {
+            throw new UnsupportedOperationException("Genes cannot be removed from a DoubleChromosome.");
+        }
+
+        @Override
+        public void clear()
+        {
+            invalidate();
+            size = 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public void recombine(Chromosome outer, Chromosome inner, int from, int to)
+        {
+            if (!(outer instanceof DoubleChromosome) || !(inner instanceof DoubleChromosome)) {
+                super.recombine(outer, inner, from, to);
+                return;
+            }
+
+            DoubleChromosome o = (DoubleChromosome) outer;
+            DoubleChromosome in = (DoubleChromosome) inner;
+
+            // The balance is derived from that of a parent, the one giving most genes if both are balanced, by changing
+            // the loci taken from the other one. It is done first, since this chromosome may be one of the parents
+            boolean outerBase = o.balanced && (!in.balanced || 2 * (to - from) <= o.size);
+            DoubleChromosome base = outerBase ? o : in;
+            boolean keepBalance = base.balanced;
+            if (keepBalance) {
+                if (balance == null)
+                    balance = newBalance();
+                if (base != this)
+                    balance.copyFrom(base.balance);
+                if (outerBase) {
+                    changeBalance(base, in, from, to);
+                } else {
+                    changeBalance(base, o, 0, from);
+                    changeBalance(base, o, to, o.size);
+                }
+            }
+
+            invalidate();
+            size = o.size;
+            System.arraycopy(o.genes, o.offset, genes, offset, from);
+            System.arraycopy(in.genes, in.offset + from, genes, offset + from, to - from);
+            System.arraycopy(o.genes, o.offset + to, genes, offset + to, size - to);
+            balanced = keepBalance && !balance.isStale();
+        }
+
+        // Changes the balance, which is that of base, for the genes of source at loci [from, to)
+        private void changeBalance(DoubleChromosome base, DoubleChromosome source, int from, int to)
+        {
+            for (int locus = from; locus < to; locus++) {
+                double previous = base.genes[base.offset + locus];
+                double value = source.genes[source.offset + locus];
+                if (previous != value)
+                    balance.setUsage(locus, previous, value);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (o instanceof DoubleChromosome) {
+                DoubleChromosome other = (DoubleChromosome) o;
+                return Arrays.equals(genes, offset, offset + size, other.genes, other.offset, other.offset + other.size);
+            }
+            return super.equals(o);
+        }
+    }
 
     // Defining mutation strategy as the Gaussian with inversion
-    private final MutationStrategy mutation = new MutationStrategy();
+    private final MutationStrategy mutation = new MutationStrategy(rng);
     private final MutationStrategy.Type mutationType = MutationStrategy.Type.GAUSSIAN_INVERSION;
 
+    // Columnar storage of the population: 2 * popSize rows of chromosomeSize genes, handed out to the two populations
+    // recycled by the engine. The population of a generation lives in one half and its offsprings are written into the
+    // other one, so the same block is reused by every generation
+    protected final double[] genes;
+    private final DoubleChromosome[] slots;
+    private int nextSlot = 0;
+
     public GA_Satisfactory(int gens, int popSize, double mutRate, String filename, long timeout) throws IOException
     {
-        super(new Satisfactory(filename), gens, popSize, mutRate, timeout);
+        this(new Satisfactory(filename), gens, popSize, mutRate, timeout);
+    }
+
+    // For a problem that is already loaded, e.g. one shared by the islands of a GA_Satisfactory_Islands
+    public GA_Satisfactory(Satisfactory problem, int gens, int popSize, double mutRate, long timeout)
+    {
+        super(problem, gens, popSize, mutRate, timeout);
+
+        genes = new double[2 * popSize * chromosomeSize];
+        slots = new DoubleChromosome[2 * popSize];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new DoubleChromosome(genes, i * chromosomeSize);
+        setRecyclePopulations(true);
     }
 
     @Override
@@ -24,19 +203,66 @@ public class GA_Satisfactory extends AbstractGA<Double, Double>
         return new Solution<>();
     }
 
+    // Hands out the rows of the population block, which are taken by the populations recycled by the engine, falling
+    // back to a standalone chromosome once all of them are in use (e.g. for the initial population)
+    @Override
+    protected Chromosome createChromosome()
+    {
+        if (nextSlot < slots.length)
+            return slots[nextSlot++];
+        return new DoubleChromosome();
+    }
+
     @Override
     protected Solution<Double> decode(Chromosome chromosome)
     {
-        Solution<Double> sol = new Solution<>();
-        sol.addAll(chromosome);
-        sol.cost = satisfactoryProblem.evaluate(sol);
+        return decode(chromosome, createEmptySol());
+    }
+
+    @Override
+    protected Solution<Double> decode(Chromosome chromosome, Solution<Double> sol)
+    {
+        DoubleChromosome c = (DoubleChromosome) chromosome;
+        sol.clear();
+        for (int i = 0; i < c.size; i++)
+            sol.add(c.getGene(i));
+        Satisfactory.Balance b = evaluate(c);
+        sol.cost = b.getCost() + b.getPenalty();   // Satisfactory.evaluate(sol), without evaluating the genes again
         return sol;
     }
 
+    // The balance of a chromosome, with its cost, raw penalty and feasibility. It is computed from scratch only when
+    // setGene and recombine could not keep it up to date, and is then shared by fitness, decode and isFeasible
+    protected Satisfactory.Balance evaluate(DoubleChromosome c)
+    {
+        if (!c.balanced) {
+            if (c.balance == null)
+                c.balance = newBalance();
+            c.balance.compute(c.genes, c.offset);
+            c.balanced = true;
+        }
+        return c.balance;
+    }
+
+    // Balances only read the compiled instance, which is shared by all forks, so any of them may create them
+    private Satisfactory.Balance newBalance()
+    {
+        return ((Satisfactory) ObjFunction).newBalance();
+    }
+
+    // The best solution of a generation is decoded from bestChromosome, so its feasibility is already cached
+    @Override
+    protected boolean isFeasible(Solution<Double> bestSolCurrentGen)
+    {
+        if (bestChromosome instanceof DoubleChromosome && ((DoubleChromosome) bestChromosome).isDecodedInto(bestSolCurrentGen))
+            return evaluate((DoubleChromosome) bestChromosome).isFeasible();
+        return super.isFeasible(bestSolCurrentGen);
+    }
+
     @Override
     protected Chromosome generateRandomChromosome()
     {
-        Chromosome c = new Chromosome();
+        Chromosome c = createChromosome();
         for (int i = 0; i < chromosomeSize; i++)
             c.add(rng.nextDouble()); // [0, 1]
         return c;
@@ -44,9 +270,15 @@ public class GA_Satisfactory extends AbstractGA<Double, Double>
 
     @Override
     protected void mutateGene(Chromosome chromosome, Integer locus) {
-        double gene = chromosome.get(locus);
-        double mutated = mutation.mutateValue(gene, mutationType);
-        chromosome.set(locus, mutated);
+        DoubleChromosome c = (DoubleChromosome) chromosome;
+        c.setGene(locus, mutation.mutateValue(c.getGene(locus), mutationType));
+    }
+
+    // The penalty constant grows along the generations, so cached fitness values expire with them
+    @Override
+    protected boolean isFitnessGenerationDependent()
+    {
+        return true;
     }
 
     @Override
@@ -58,9 +290,9 @@ public class GA_Satisfactory extends AbstractGA<Double, Double>
         // where C(x) is the cost function, P(x) is the "unfeasibility rate"
         // and K0 is an initial value for the penalty constant, g is the current generation, G is the max number of generations and α is a scaling factor
 
-        Solution<Double> sol = decode(chromosome);
-        double cost = satisfactoryProblem.computeTotalCost(sol);
-        double penalty = satisfactoryProblem.computePenalty(sol);
+        Satisfactory.Balance balance = evaluate((DoubleChromosome) chromosome);
+        double cost = balance.getCost();
+        double penalty = balance.getPenalty();
 
         // Control dynamic penalty
         double basePenalty = 6.0;      // K0, may be adjusted if needed
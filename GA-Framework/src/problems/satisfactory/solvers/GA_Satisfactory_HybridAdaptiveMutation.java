@@ -33,110 +33,70 @@ public class GA_Satisfactory_HybridAdaptiveMutation extends GA_Satisfactory
     }
  
     @Override
-    public Solution<Double> solve()
+    protected boolean updateBestSolution(Solution<Double> bestSolCurrentGen)
     {
-        Population population = initializePopulation();
-        bestChromosome = getBestChromosome(population);
-        bestSol = decode(bestChromosome);
+        // Check if current generation has improved (check strictly for lower cost AND feasibility)
+        boolean improved = super.updateBestSolution(bestSolCurrentGen);
 
-        long startTime = System.currentTimeMillis();
-        for (currentGeneration = 1; currentGeneration <= generations; currentGeneration++)
+        // --- CRITERIA FOR CHANGING MUTATION RATE ---
+        // 1) Generations without improvements
+        if (improved)
         {
-
-            Population parents = selectParents(population);
-            Population offsprings = crossover(parents);
-            Population mutants = mutate(offsprings);
-            Population newPopulation = selectPopulation(mutants);
-            population = newPopulation;
-            bestChromosome = getBestChromosome(population);
-            Solution<Double> bestSolCurrentGen = decode(bestChromosome);
-
-            // Check if current generation has improved (check strictly for lower cost AND feasibility)
-            boolean improved = false;
-            if (bestSolCurrentGen.cost < bestSol.cost)
+            generationsWithoutImprovementsCounter = 0;
+            double previousMutationRate = mutationRate;
+            mutationRate = Math.max(mutationRate * 0.9, minMR);
+            if (previousMutationRate != mutationRate && verbose)
+                logger.info(logPrefix + "[DEC_MR] Mutation rate decreased to " + mutationRate + " due to improvements in generation " + currentGeneration);
+        }
+        else
+        {
+            generationsWithoutImprovementsCounter++;
+            if (generationsWithoutImprovementsCounter >= generationsWithoutImprovementMax)
             {
-                if (ObjFunction.isFeasible(bestSolCurrentGen))
-                {
-                    bestSol = bestSolCurrentGen;
-                    improved = true;
-                    if (verbose)
-                        logger.info(logPrefix + "(Gen. " + currentGeneration + ") BestSol = " + bestSol);
-                }
-                else
-                    improved = false;
+                double previousMutationRate = mutationRate;
+                mutationRate = Math.min(mutationRate * 1.5, maxMR);
+                generationsWithoutImprovementsCounter = 0;
+                if (previousMutationRate != mutationRate && verbose)
+                    logger.info(logPrefix + "[INC_MR] Mutation rate increased to " + mutationRate + " due to stagnation in generation " + currentGeneration);
             }
+        }
 
-            // --- CRITERIA FOR CHANGING MUTATION RATE ---
-            // 1) Generations without improvements
-            if (improved)
+        // 2) Diversity-based adaptation (compute every generation but apply only if cooldown passed)
+        if ((currentGeneration - lastDiversityAdjustmentGen) >= diversityCheckCooldown)
+        {
+            double diversityRate = computePopulationDiversity(population);
+            if (diversityRate < diversityThreshold)
             {
-                generationsWithoutImprovementsCounter = 0;
+                // Population is too homogeneous, so increase MR moderately
                 double previousMutationRate = mutationRate;
-                mutationRate = Math.max(mutationRate * 0.9, minMR);
+                mutationRate = Math.min(mutationRate * 1.3, maxMR);
+                lastDiversityAdjustmentGen = currentGeneration;
                 if (previousMutationRate != mutationRate && verbose)
-                    logger.info(logPrefix + "[DEC_MR] Mutation rate decreased to " + mutationRate + " due to improvements in generation " + currentGeneration);
+                    logger.info(logPrefix + "[INC_MR] Mutation rate increased to " + mutationRate + " due to low diversity in generation " + currentGeneration);
             }
             else
             {
-                generationsWithoutImprovementsCounter++;
-                if (generationsWithoutImprovementsCounter >= generationsWithoutImprovementMax)
-                {
-                    double previousMutationRate = mutationRate;
-                    mutationRate = Math.min(mutationRate * 1.5, maxMR);
-                    generationsWithoutImprovementsCounter = 0;
-                    if (previousMutationRate != mutationRate && verbose)
-                        logger.info(logPrefix + "[INC_MR] Mutation rate increased to " + mutationRate + " due to stagnation in generation " + currentGeneration);
-                }
-            }
-
-            // 2) Diversity-based adaptation (compute every generation but apply only if cooldown passed)
-            if ((currentGeneration - lastDiversityAdjustmentGen) >= diversityCheckCooldown)
-            {
-                double diversityRate = computePopulationDiversity(population);
-                if (diversityRate < diversityThreshold)
+                // If diversity is very high we can slightly decrease MR. This adjustment is very mild to avoid removing exploration capacity
+                double highDiversityThreshold = diversityThreshold * 10;
+                if (diversityRate > highDiversityThreshold && mutationRate > minMR)
                 {
-                    // Population is too homogeneous, so increase MR moderately
                     double previousMutationRate = mutationRate;
-                    mutationRate = Math.min(mutationRate * 1.3, maxMR);
+                    mutationRate = Math.max(mutationRate * 0.95, minMR);
                     lastDiversityAdjustmentGen = currentGeneration;
                     if (previousMutationRate != mutationRate && verbose)
-                        logger.info(logPrefix + "[INC_MR] Mutation rate increased to " + mutationRate + " due to low diversity in generation " + currentGeneration);
-                }
-                else
-                {
-                    // If diversity is very high we can slightly decrease MR. This adjustment is very mild to avoid removing exploration capacity
-                    double highDiversityThreshold = diversityThreshold * 10;
-                    if (diversityRate > highDiversityThreshold && mutationRate > minMR)
-                    {
-                        double previousMutationRate = mutationRate;
-                        mutationRate = Math.max(mutationRate * 0.95, minMR);
-                        lastDiversityAdjustmentGen = currentGeneration;
-                        if (previousMutationRate != mutationRate && verbose)
-                            logger.info(logPrefix + "[DEC_MR] Mutation rate decreased to " + mutationRate + " due to high diversity in generation " + currentGeneration);
-                    }
+                        logger.info(logPrefix + "[DEC_MR] Mutation rate decreased to " + mutationRate + " due to high diversity in generation " + currentGeneration);
                 }
             }
-
-            long currentTime = System.currentTimeMillis();
-            if (timeoutInSeconds != null && (currentTime - startTime) >= timeoutInSeconds * 1000)
-            {
-                logger.warning(logPrefix + "[TIME] Timeout after " + timeoutInSeconds + "s");
-                break;
-            }
-
         }
 
-        if (!ObjFunction.isFeasible(bestSol))
-            throw new RuntimeException("No feasible solution found.");
-
-        return bestSol;
+        return improved;
     }
 
     /**
      * Compute a simple measure of population diversity:
      * average variance across loci (genes).
      *
-     * population: list of chromosomes (each is a list of Double genes)
+     * population: list of chromosomes (each is a DoubleChromosome)
      * returns: avgVariance (double >= 0). Lower => more homogeneous.
      */
     protected double computePopulationDiversity(Population population)
@@ -147,28 +107,31 @@ public class GA_Satisfactory_HybridAdaptiveMutation extends GA_Satisfactory
         int n = population.size();
         int m = chromosomeSize;     // number of genes per chromosome
 
+        // Both steps sweep each chromosome's genes contiguously, accumulating one entry per gene
+
         // Step 1: Calculate mean for each gene
         double[] means = new double[m];
-        for (int j = 0; j < m; j++)
+        for (Chromosome c : population)
         {
-            double sum = 0.0;
-            for (int i = 0; i < n; i++) sum += population.get(i).get(j).doubleValue();
-            means[j] = sum / n;
+            DoubleChromosome dc = (DoubleChromosome) c;
+            for (int j = 0; j < m; j++) means[j] += dc.genes[dc.offset + j];
         }
+        for (int j = 0; j < m; j++) means[j] /= n;
 
         // Step 2: Calculate variance for each gene
-        double totalVar = 0.0;
-        for (int j = 0; j < m; j++)
+        double[] vars = new double[m];
+        for (Chromosome c : population)
         {
-            double var = 0.0;
-            for (int i = 0; i < n; i++)
+            DoubleChromosome dc = (DoubleChromosome) c;
+            for (int j = 0; j < m; j++)
             {
-                double diff = population.get(i).get(j).doubleValue() - means[j];
-                var += diff * diff;
+                double diff = dc.genes[dc.offset + j] - means[j];
+                vars[j] += diff * diff;
             }
-            var = var / n; // population variance
-            totalVar += var;
         }
+        double totalVar = 0.0;
+        for (int j = 0; j < m; j++)
+            totalVar += vars[j] / n; // population variance
 
         // Step 3: calculate average variance across all genes
         double avgVar = totalVar / m;
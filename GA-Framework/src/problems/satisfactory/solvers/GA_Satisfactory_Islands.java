@@ -0,0 +1,37 @@
+package problems.satisfactory.solvers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import metaheuristics.ga.IslandGA;
+import problems.satisfactory.Satisfactory;
+import solutions.Solution;
+
+/**
+ * Island model of GA_Satisfactory, using all cores on a single instance. The instance is loaded once and shared by all islands.
+ */
+public class GA_Satisfactory_Islands extends IslandGA<Double, Double>
+{
+    public GA_Satisfactory_Islands(int islandCount, int gens, int popSize, double mutRate, String filename, long timeout,
+                                   int migrationInterval, int migrants, Topology topology) throws IOException
+    {
+        super(createIslands(islandCount, gens, popSize, mutRate, new Satisfactory(filename), timeout), migrationInterval, migrants, topology);
+    }
+
+    private static List<GA_Satisfactory> createIslands(int islandCount, int gens, int popSize, double mutRate, Satisfactory problem, long timeout)
+    {
+        List<GA_Satisfactory> islands = new ArrayList<>();
+        for (int i = 0; i < islandCount; i++)
+            islands.add(new GA_Satisfactory(problem.fork(), gens, popSize, mutRate, timeout));
+        return islands;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int islandCount = Runtime.getRuntime().availableProcessors();
+        GA_Satisfactory_Islands ga = new GA_Satisfactory_Islands(islandCount, 500, 50, 0.05, "instances/example.json", 60L, 25, 2, Topology.RING);
+        ga.setSeed(0L);
+        Solution<Double> best = ga.solve();
+        System.out.println("Best solution: " + best);
+    }
+}
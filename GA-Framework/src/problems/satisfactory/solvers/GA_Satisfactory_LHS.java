@@ -26,7 +26,7 @@ public class GA_Satisfactory_LHS extends GA_Satisfactory {
         Population population = new Population();
 
         for (int i = 0; i < popSize; i++) {
-            population.add(new Chromosome());
+            population.add(createChromosome());
         }
 
         for (int locus = 0; locus < chromosomeSize; locus++) {
@@ -4,9 +4,15 @@ import java.util.Random;
 
 public class MutationStrategy
 {
-    private static final Random rng = new Random();
+    private final Random rng;
     private double sigma = 0.1; // gaussian's standard deviation
 
+    // rng should be the generator of the GA using this strategy, so that mutations are reproducible from its seed
+    public MutationStrategy(Random rng)
+    {
+        this.rng = rng;
+    }
+
     public enum Type
     {
         GAUSSIAN,